@@ -0,0 +1,222 @@
+package info.kgeorgiy.ja.karpov.arrayset;
+
+import java.util.*;
+
+/**
+ * Immutable navigable set over a sorted random-access sequence.
+ * Implements navigation, subset and descending views in terms of positional access and search,
+ * so that the storage is left to subclasses.
+ *
+ * @param <T> - element type.
+ */
+public abstract class AbstractArraySet<T> extends AbstractSet<T> implements NavigableSet<T> {
+    /**
+     * Returns element at the given position of this set.
+     *
+     * @param i - position from {@code 0} to {@code size() - 1}.
+     * @return the element.
+     */
+    protected abstract T get(int i);
+
+    /**
+     * Searches for an element with the contract of {@link Collections#binarySearch(List, Object, Comparator)}.
+     *
+     * @param val - element to search for.
+     * @return position of the element, or {@code -(insertion point) - 1} if there is none.
+     */
+    protected abstract int search(T val);
+
+    /**
+     * Compares elements in the order of this set.
+     *
+     * @param a - first element.
+     * @param b - second element.
+     * @return comparison result.
+     */
+    protected abstract int compare(T a, T b);
+
+    /**
+     * Returns set of elements at positions from {@code from} inclusive to {@code to} exclusive.
+     *
+     * @param from - first position.
+     * @param to   - position after the last one.
+     * @return view of the range.
+     */
+    protected abstract AbstractArraySet<T> slice(int from, int to);
+
+    /**
+     * Returns the same elements in the reverse order.
+     *
+     * @return reversed view.
+     */
+    protected abstract AbstractArraySet<T> reversed();
+
+    private boolean inBounds(int ind) {
+        return ind >= 0 && ind < size();
+    }
+
+    /**
+     * Converts a search result into a position of a neighbouring element.
+     *
+     * @param search       - result of {@link #search}.
+     * @param presentShift - shift from the found element.
+     * @param absentShift  - shift from the insertion point when the element is absent.
+     * @return position, or {@code -1} if it is out of bounds.
+     */
+    protected int shiftedIndex(int search, int presentShift, int absentShift) {
+        int res = search < 0 ? -search - 1 + absentShift : search + presentShift;
+        return inBounds(res) ? res : -1;
+    }
+
+    private int binarySearch(T val, int presentShift, int absentShift) {
+        return shiftedIndex(search(val), presentShift, absentShift);
+    }
+
+    private T binarySearchElement(T val, int presentShift, int absentShift) {
+        int res = binarySearch(val, presentShift, absentShift);
+        return res != -1 ? get(res) : null;
+    }
+
+    @Override
+    public T lower(T o) {
+        return binarySearchElement(o, -1, -1);
+    }
+
+    @Override
+    public T floor(T o) {
+        return binarySearchElement(o, 0, -1);
+    }
+
+    @Override
+    public T ceiling(T o) {
+        return binarySearchElement(o, 0, 0);
+    }
+
+    @Override
+    public T higher(T o) {
+        return binarySearchElement(o, 1, 0);
+    }
+
+    @Override
+    public T pollFirst() {
+        throw new UnsupportedOperationException("pollFirst unsupported");
+    }
+
+    @Override
+    public T pollLast() {
+        throw new UnsupportedOperationException("pollLast unsupported");
+    }
+
+    @Override
+    public void clear() {
+        throw new UnsupportedOperationException("clear unsupported");
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        throw new UnsupportedOperationException("remove unsupported");
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean contains(Object o) {
+        return inBounds(search((T) o));
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return new Iterator<>() {
+            private int i = 0;
+
+            public boolean hasNext() {
+                return i < size();
+            }
+
+            public T next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return get(i++);
+            }
+
+            public void remove() {
+                throw new UnsupportedOperationException("iterator.remove not supported");
+            }
+        };
+    }
+
+    @Override
+    public NavigableSet<T> descendingSet() {
+        return reversed();
+    }
+
+    @Override
+    public Iterator<T> descendingIterator() {
+        return descendingSet().iterator();
+    }
+
+    private NavigableSet<T> sub(T fromElement, boolean fromInclusive,
+                                T toElement, boolean toInclusive, boolean partial) {
+        int from = fromInclusive ? binarySearch(fromElement, 0, 0) : binarySearch(fromElement, 1, 0);
+        int to = toInclusive ? binarySearch(toElement, 0, -1) : binarySearch(toElement, -1, -1);
+        int compRes = compare(fromElement, toElement);
+        if (compRes > 0 && !partial) {
+            throw new IllegalArgumentException("From element is bigger than to element");
+        }
+        if (from > to || from == -1 || to == -1 || compRes > 0) {
+            return slice(0, 0);
+        }
+        return slice(from, to + 1);
+    }
+
+    @Override
+    public NavigableSet<T> subSet(T fromElement, boolean fromInclusive, T toElement, boolean toInclusive) {
+        return sub(fromElement, fromInclusive, toElement, toInclusive, false);
+    }
+
+    @Override
+    public NavigableSet<T> headSet(T toElement, boolean inclusive) {
+        return isEmpty() ? slice(0, 0) : sub(first(), true, toElement, inclusive, true);
+    }
+
+    @Override
+    public NavigableSet<T> tailSet(T fromElement, boolean inclusive) {
+        return isEmpty() ? slice(0, 0) : sub(fromElement, inclusive, last(), true, true);
+    }
+
+    @Override
+    public NavigableSet<T> subSet(T fromElement, T toElement) {
+        return subSet(fromElement, true, toElement, false);
+    }
+
+    @Override
+    public NavigableSet<T> headSet(T toElement) {
+        return headSet(toElement, false);
+    }
+
+    @Override
+    public NavigableSet<T> tailSet(T fromElement) {
+        return tailSet(fromElement, true);
+    }
+
+    @Override
+    public T first() {
+        if (isEmpty()) {
+            throw new NoSuchElementException();
+        }
+        return get(0);
+    }
+
+    @Override
+    public T last() {
+        if (isEmpty()) {
+            throw new NoSuchElementException();
+        }
+        return get(size() - 1);
+    }
+}
@@ -2,9 +2,20 @@ package info.kgeorgiy.ja.karpov.arrayset;
 
 import java.util.*;
 
-public class ArraySet<T> extends AbstractSet<T> implements NavigableSet<T> {
-    private final List<T> arr;
+/**
+ * Immutable navigable set over a sorted array.
+ * Subset and descending views are windows {@code (array, from, to, direction)} of the same array,
+ * so chains of views collapse into a single flat view.
+ *
+ * @param <T> - element type.
+ */
+public class ArraySet<T> extends AbstractArraySet<T> {
+    private final Object[] values;
+    private final int from;
+    private final int to;
+    private final boolean descending;
     private final Comparator<T> comp;
+    private final EytzingerIndex<T> index;
 
     public ArraySet() {
         this(List.of());
@@ -14,203 +25,296 @@ public class ArraySet<T> extends AbstractSet<T> implements NavigableSet<T> {
         this(col, null);
     }
 
-    @SuppressWarnings("unchecked")
     public ArraySet(Collection<T> col, Comparator<T> comp) {
-        this.comp = comp == null ? (Comparator<T>) Comparator.naturalOrder() : comp;
-        ArrayList<T> tmp = new ArrayList<>(col);
-        arr = new ArrayList<>();
-        tmp.sort(comp);
-        for (int i = 0; i < tmp.size(); i++) {
-            if (i == 0 || this.comp.compare(tmp.get(i - 1), tmp.get(i)) != 0) {
-                arr.add(tmp.get(i));
-            }
-        }
+        this(col, comp, false);
     }
 
-    private ArraySet(List<T> col, Comparator<T> comp) {
-        this.arr = col;
+    /**
+     * Creates set of elements of a collection.
+     *
+     * @param col     - elements of the set.
+     * @param comp    - order of the elements, {@code null} for natural order.
+     * @param indexed - whether to build an Eytzinger-layout search index.
+     *                Speeds up navigation on large sets at the cost of extra memory, shared by all views.
+     */
+    @SuppressWarnings("unchecked")
+    public ArraySet(Collection<T> col, Comparator<T> comp, boolean indexed) {
+        this.comp = comp == null ? (Comparator<T>) Comparator.naturalOrder() : comp;
+        T[] values = (T[]) col.toArray();
+        if (!sameOrder(col)) {
+            values = distinct(values);
+        }
+        this.values = values;
+        from = 0;
+        to = values.length;
+        descending = false;
+        index = indexed ? new EytzingerIndex<>(Arrays.asList(values), this.comp) : null;
+    }
+
+    private ArraySet(Object[] values, int from, int to, boolean descending,
+                     Comparator<T> comp, EytzingerIndex<T> index) {
+        this.values = values;
+        this.from = from;
+        this.to = to;
+        this.descending = descending;
         this.comp = comp;
+        this.index = index;
     }
 
-    private boolean inBounds(int ind) {
-        return ind >= 0 && ind < arr.size();
-    }
-
-    private int binarySearch(T val, int presentShift, int absentShift) {
-        int colSearch = Collections.binarySearch(arr, val, comp);
-        if (colSearch < 0) {
-            colSearch = -colSearch - 1 + absentShift;
-        } else {
-            colSearch += presentShift;
+    private boolean sameOrder(Collection<?> col) {
+        if (col instanceof SortedSet<?> sorted) {
+            Comparator<?> order = sorted.comparator();
+            return order == null ? comp.equals(Comparator.naturalOrder()) : order.equals(comp);
         }
-        return inBounds(colSearch) ? colSearch : -1;
-    }
-
-    private T binarySearchElement(T val, int presentShift, int absentShift) {
-        int res = binarySearch(val, presentShift, absentShift);
-        return res != -1 ? arr.get(res) : null;
+        return false;
     }
 
-    @Override
-    public T lower(T o) {
-        return binarySearchElement(o, -1, -1);
-    }
-
-    @Override
-    public T floor(T o) {
-        return binarySearchElement(o, 0, -1);
+    /**
+     * Sorts and removes duplicates, skipping the sort when the values are already ordered.
+     */
+    private T[] distinct(T[] values) {
+        int ordered = 1;
+        while (ordered < values.length && comp.compare(values[ordered - 1], values[ordered]) <= 0) {
+            ordered++;
+        }
+        if (ordered < values.length) {
+            Arrays.sort(values, comp);
+        }
+        int size = 0;
+        for (int i = 0; i < values.length; i++) {
+            if (i == 0 || comp.compare(values[size - 1], values[i]) != 0) {
+                values[size++] = values[i];
+            }
+        }
+        return size == values.length ? values : Arrays.copyOf(values, size);
     }
 
     @Override
-    public T ceiling(T o) {
-        return binarySearchElement(o, 0, 0);
+    @SuppressWarnings("unchecked")
+    protected T get(int i) {
+        return (T) values[descending ? to - 1 - i : from + i];
     }
 
-    @Override
-    public T higher(T o) {
-        return binarySearchElement(o, 1, 0);
+    /**
+     * Searches in ascending array positions, where {@code comp} is reversed for descending views.
+     */
+    @SuppressWarnings("unchecked")
+    private int arraySearch(T val) {
+        int low = from;
+        int high = to - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            T midVal = (T) values[mid];
+            int c = descending ? comp.compare(val, midVal) : comp.compare(midVal, val);
+            if (c < 0) {
+                low = mid + 1;
+            } else if (c > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -low - 1;
     }
 
     @Override
-    public T pollFirst() {
-        throw new UnsupportedOperationException("pollFirst unsupported");
+    protected int search(T val) {
+        int res = index == null ? arraySearch(val) : index.search(val);
+        // Map array position into this view
+        int pos = res < 0 ? -res - 1 : res;
+        boolean found = res >= 0 && pos >= from && pos < to;
+        if (descending) {
+            int greater = to - Math.max(from, Math.min(found ? pos + 1 : pos, to));
+            return found ? greater : -greater - 1;
+        }
+        int less = Math.max(from, Math.min(pos, to)) - from;
+        return found ? less : -less - 1;
     }
 
     @Override
-    public T pollLast() {
-        throw new UnsupportedOperationException("pollLast unsupported");
+    protected int compare(T a, T b) {
+        return comp.compare(a, b);
     }
 
     @Override
-    public void clear() {
-        throw new UnsupportedOperationException("clear unsupported");
+    protected ArraySet<T> slice(int from, int to) {
+        return descending
+                ? new ArraySet<>(values, this.to - to, this.to - from, true, comp, index)
+                : new ArraySet<>(values, this.from + from, this.from + to, false, comp, index);
     }
 
     @Override
-    public boolean remove(Object o) {
-        throw new UnsupportedOperationException("remove unsupported");
+    protected ArraySet<T> reversed() {
+        return new ArraySet<>(values, from, to, !descending, Collections.reverseOrder(comp), index);
     }
 
     @Override
     public int size() {
-        return arr.size();
-    }
-
-    @Override
-    public boolean isEmpty() {
-        return arr.isEmpty();
-    }
-
-    @Override
-    @SuppressWarnings("unchecked")
-    public boolean contains(Object o) {
-        return inBounds(Collections.binarySearch(arr, (T) o, comp));
+        return to - from;
     }
 
     @Override
     public Iterator<T> iterator() {
         return new Iterator<>() {
-            private final Iterator<? extends T> i = arr.iterator();
+            private final int step = descending ? -1 : 1;
+            private int pos = descending ? to - 1 : from;
+            private int remaining = to - from;
 
+            @Override
             public boolean hasNext() {
-                return i.hasNext();
+                return remaining > 0;
             }
 
+            @Override
+            @SuppressWarnings("unchecked")
             public T next() {
-                return i.next();
-            }
-
-            public void remove() {
-                throw new UnsupportedOperationException("iterator.remove not supported");
+                if (remaining == 0) {
+                    throw new NoSuchElementException();
+                }
+                remaining--;
+                T res = (T) values[pos];
+                pos += step;
+                return res;
             }
         };
     }
 
-    @Override
-    public boolean containsAll(Collection c) {
-        for (Object o : c) {
-            if (!contains(o)) {
-                return false;
-            }
-        }
-        return true;
+    /**
+     * Returns set of elements contained in this set or in the given collection.
+     * Runs as a linear merge when the collection is a sorted set of the same order.
+     *
+     * @param other - elements to add.
+     * @return new set in the order of this set.
+     */
+    public ArraySet<T> union(Collection<? extends T> other) {
+        return merge(other, true, true, true);
     }
 
-    @Override
-    public NavigableSet<T> descendingSet() {
-        if (arr instanceof ReverseList<T>) {
-            return new ArraySet<>(((ReverseList<T>) arr).getBackingList(), Collections.reverseOrder(comp));
-        }
-        return new ArraySet<>(new ReverseList<>(arr), Collections.reverseOrder(comp));
+    /**
+     * Returns set of elements contained both in this set and in the given collection.
+     * Runs as a linear merge when the collection is a sorted set of the same order.
+     *
+     * @param other - elements to retain.
+     * @return new set in the order of this set.
+     */
+    public ArraySet<T> intersection(Collection<? extends T> other) {
+        return merge(other, false, true, false);
     }
 
-    @Override
-    public Iterator<T> descendingIterator() {
-        return descendingSet().iterator();
+    /**
+     * Returns set of elements contained in this set but not in the given collection.
+     * Runs as a linear merge when the collection is a sorted set of the same order.
+     *
+     * @param other - elements to remove.
+     * @return new set in the order of this set.
+     */
+    public ArraySet<T> difference(Collection<? extends T> other) {
+        return merge(other, true, false, false);
     }
 
-    private NavigableSet<T> sub(T fromElement, boolean fromInclusive,
-                                T toElement, boolean toInclusive, boolean partial) {
-        int from = fromInclusive ? binarySearch(fromElement, 0, 0) : binarySearch(fromElement, 1, 0);
-        int to = toInclusive ? binarySearch(toElement, 0, -1) : binarySearch(toElement, -1, -1);
-        int compRes = comp.compare(fromElement, toElement);
-        if (compRes > 0 && !partial) {
-            throw new IllegalArgumentException("From element is bigger than to element");
+    @SuppressWarnings("unchecked")
+    private ArraySet<? extends T> sorted(Collection<? extends T> other) {
+        if (other instanceof ArraySet<?> set && sameOrder(other)) {
+            return (ArraySet<? extends T>) set;
         }
-        if (from > to || from == -1 || to == -1 || compRes > 0) {
-            return new ArraySet<>();
+        T[] values = (T[]) other.toArray();
+        if (!sameOrder(other)) {
+            values = distinct(values);
         }
-        return new ArraySet<>(arr.subList(from, to + 1), comp);
-    }
-
-    @Override
-    public NavigableSet<T> subSet(T fromElement, boolean fromInclusive, T toElement, boolean toInclusive) {
-        return sub(fromElement, fromInclusive, toElement, toInclusive, false);
-    }
-
-    @Override
-    public NavigableSet<T> headSet(T toElement, boolean inclusive) {
-        return arr.isEmpty() ? new ArraySet<>() : sub(first(), true, toElement, inclusive, true);
-    }
-
-    @Override
-    public NavigableSet<T> tailSet(T fromElement, boolean inclusive) {
-        return arr.isEmpty() ? new ArraySet<>() : sub(fromElement, inclusive, last(), true, true);
-    }
-
-    @Override
-    public Comparator<T> comparator() {
-        return comp.equals(Comparator.naturalOrder()) ? null : comp;
+        return new ArraySet<>(values, 0, values.length, false, comp, null);
+    }
+
+    private ArraySet<T> merge(Collection<? extends T> other, boolean onlyThis, boolean both, boolean onlyOther) {
+        ArraySet<? extends T> that = sorted(other);
+        int n = size();
+        int m = that.size();
+        Object[] res = new Object[onlyOther ? n + m : n];
+        int size = 0;
+        int i = 0;
+        int j = 0;
+        while (i < n && j < m) {
+            T a = get(i);
+            T b = that.get(j);
+            int c = comp.compare(a, b);
+            if (c < 0) {
+                if (onlyThis) {
+                    res[size++] = a;
+                }
+                i++;
+            } else if (c > 0) {
+                if (onlyOther) {
+                    res[size++] = b;
+                }
+                j++;
+            } else {
+                if (both) {
+                    res[size++] = a;
+                }
+                i++;
+                j++;
+            }
+        }
+        while (onlyThis && i < n) {
+            res[size++] = get(i++);
+        }
+        while (onlyOther && j < m) {
+            res[size++] = that.get(j++);
+        }
+        Object[] values = size == res.length ? res : Arrays.copyOf(res, size);
+        @SuppressWarnings("unchecked")
+        EytzingerIndex<T> resIndex = index == null ? null : new EytzingerIndex<>((List<T>) Arrays.asList(values), comp);
+        return new ArraySet<>(values, 0, size, false, comp, resIndex);
     }
 
-    @Override
-    public NavigableSet<T> subSet(T fromElement, T toElement) {
-        return subSet(fromElement, true, toElement, false);
+    /**
+     * Checks that all elements of a collection sorted in the order of this set are present
+     * by a single pass over both.
+     */
+    @SuppressWarnings("unchecked")
+    private boolean includes(Collection<?> c) {
+        int i = 0;
+        for (Object o : c) {
+            T val = (T) o;
+            while (i < size() && comp.compare(get(i), val) < 0) {
+                i++;
+            }
+            if (i == size() || comp.compare(get(i), val) != 0) {
+                return false;
+            }
+            i++;
+        }
+        return true;
     }
 
     @Override
-    public NavigableSet<T> headSet(T toElement) {
-        return arr.isEmpty() ? new ArraySet<>() : headSet(toElement, false);
+    public boolean equals(Object o) {
+        if (o instanceof SortedSet<?> set && sameOrder(set)) {
+            return set.size() == size() && includes(set);
+        }
+        return super.equals(o);
     }
 
     @Override
-    public NavigableSet<T> tailSet(T fromElement) {
-        return arr.isEmpty() ? new ArraySet<>() : tailSet(fromElement, true);
+    public int hashCode() {
+        return super.hashCode();
     }
 
     @Override
-    public T first() {
-        if (arr.isEmpty()) {
-            throw new NoSuchElementException();
+    public boolean containsAll(Collection c) {
+        // Merge unless the collection is so small that separate searches are cheaper
+        if (sameOrder(c) && (long) c.size() * (Integer.SIZE - Integer.numberOfLeadingZeros(size())) >= size()) {
+            return includes(c);
+        }
+        for (Object o : c) {
+            if (!contains(o)) {
+                return false;
+            }
         }
-        return arr.get(0);
+        return true;
     }
 
     @Override
-    public T last() {
-        if (arr.isEmpty()) {
-            throw new NoSuchElementException();
-        }
-        return arr.get(arr.size() - 1);
+    public Comparator<T> comparator() {
+        return comp.equals(Comparator.naturalOrder()) ? null : comp;
     }
 }
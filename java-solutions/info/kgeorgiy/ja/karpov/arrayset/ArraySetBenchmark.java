@@ -0,0 +1,144 @@
+package info.kgeorgiy.ja.karpov.arrayset;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.Function;
+
+/**
+ * Compares {@link ArraySet} and its variants with {@link TreeSet} and {@link ConcurrentSkipListSet}.
+ * Usage: {@code ArraySetBenchmark [size...]}.
+ * Sets contain even integers, and half of the queries are absent from them.
+ * Large sizes, up to {@code 100000000}, need a heap of several gigabytes ({@code -Xmx}).
+ */
+public class ArraySetBenchmark {
+    private static final int[] DEFAULT_SIZES = {1_000, 10_000, 100_000, 1_000_000, 10_000_000};
+    private static final int QUERIES = 1 << 16;
+    private static final long OPS_PER_RUN = 1L << 20;
+    private static final int SUBSET_SPAN = 100;
+    private static final int WARMUP_RUNS = 1;
+    private static final int RUNS = 3;
+
+    private static volatile long sink;
+
+    private record Subject(String name, Function<List<Integer>, NavigableSet<Integer>> factory) {
+    }
+
+    private record Operation(String name, boolean perElement, Benchmark benchmark) {
+    }
+
+    @FunctionalInterface
+    private interface Benchmark {
+        long run(Subject subject, NavigableSet<Integer> set, List<Integer> values, Integer[] queries);
+    }
+
+    private static final List<Subject> SUBJECTS = List.of(
+            new Subject("ArraySet", ArraySet::new),
+            new Subject("Indexed", values -> new ArraySet<>(values, null, true)),
+            new Subject("IntArraySet", IntArraySet::new),
+            new Subject("TreeSet", TreeSet::new),
+            new Subject("SkipList", ConcurrentSkipListSet::new)
+    );
+
+    private static final List<Operation> OPERATIONS = List.of(
+            new Operation("construction", true, (subject, set, values, queries) ->
+                    subject.factory().apply(values).size()),
+            new Operation("contains", false, (subject, set, values, queries) -> {
+                long res = 0;
+                for (Integer query : queries) {
+                    res += set.contains(query) ? 1 : 0;
+                }
+                return res;
+            }),
+            new Operation("floor/ceiling", false, (subject, set, values, queries) -> {
+                long res = 0;
+                for (Integer query : queries) {
+                    Integer floor = set.floor(query);
+                    Integer ceiling = set.ceiling(query);
+                    res += (floor == null ? 0 : floor) + (ceiling == null ? 0 : ceiling);
+                }
+                return res;
+            }),
+            new Operation("iteration", true, (subject, set, values, queries) -> {
+                long res = 0;
+                for (Integer value : set) {
+                    res += value;
+                }
+                return res;
+            }),
+            new Operation("descending", true, (subject, set, values, queries) -> {
+                long res = 0;
+                for (Integer value : set.descendingSet()) {
+                    res += value;
+                }
+                return res;
+            }),
+            new Operation("subSet", false, (subject, set, values, queries) -> {
+                long res = 0;
+                for (Integer query : queries) {
+                    res += set.subSet(query, true, query + SUBSET_SPAN, false).isEmpty() ? 0 : 1;
+                }
+                return res;
+            })
+    );
+
+    private static double measure(Operation operation, Subject subject, NavigableSet<Integer> set,
+                                  List<Integer> values, Integer[] queries) {
+        long opsPerRepeat = operation.perElement() ? values.size() : queries.length;
+        long repeats = Math.max(1, OPS_PER_RUN / opsPerRepeat);
+        long res = 0;
+        long start = System.nanoTime();
+        for (long i = 0; i < repeats; i++) {
+            res += operation.benchmark().run(subject, set, values, queries);
+        }
+        long time = System.nanoTime() - start;
+        sink += res;
+        return (double) time / (repeats * opsPerRepeat);
+    }
+
+    private static double best(Operation operation, Subject subject, NavigableSet<Integer> set,
+                               List<Integer> values, Integer[] queries) {
+        for (int i = 0; i < WARMUP_RUNS; i++) {
+            measure(operation, subject, set, values, queries);
+        }
+        double best = Double.MAX_VALUE;
+        for (int i = 0; i < RUNS; i++) {
+            best = Math.min(best, measure(operation, subject, set, values, queries));
+        }
+        return best;
+    }
+
+    public static void main(String[] args) {
+        int[] sizes = DEFAULT_SIZES;
+        if (args != null && args.length > 0) {
+            sizes = Arrays.stream(args).mapToInt(Integer::parseInt).toArray();
+        }
+        Random random = new Random(239);
+        for (int size : sizes) {
+            List<Integer> values = new ArrayList<>(size);
+            for (int j = 0; j < size; j++) {
+                values.add(2 * j);
+            }
+            Collections.shuffle(values, random);
+            Integer[] queries = new Integer[QUERIES];
+            for (int j = 0; j < queries.length; j++) {
+                queries[j] = random.nextInt(2 * size);
+            }
+            List<NavigableSet<Integer>> sets = SUBJECTS.stream().map(subject -> subject.factory().apply(values)).toList();
+
+            System.out.println("Size " + size + " (ns per element or query)");
+            System.out.printf("%14s", "operation");
+            for (Subject subject : SUBJECTS) {
+                System.out.printf("%14s", subject.name());
+            }
+            System.out.println();
+            for (Operation operation : OPERATIONS) {
+                System.out.printf("%14s", operation.name());
+                for (int k = 0; k < SUBJECTS.size(); k++) {
+                    System.out.printf("%14.1f", best(operation, SUBJECTS.get(k), sets.get(k), values, queries));
+                }
+                System.out.println();
+            }
+            System.out.println();
+        }
+    }
+}
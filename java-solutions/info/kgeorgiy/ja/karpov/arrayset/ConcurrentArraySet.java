@@ -0,0 +1,198 @@
+package info.kgeorgiy.ja.karpov.arrayset;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Thread-safe navigable set for read-mostly lookup tables.
+ * Contents are immutable {@link ArraySet} versions, replaced atomically,
+ * so readers never lock and every view or iterator pins the version it was created from.
+ *
+ * @param <T> - element type.
+ */
+public class ConcurrentArraySet<T> extends AbstractSet<T> implements NavigableSet<T> {
+    private final AtomicReference<ArraySet<T>> current;
+
+    public ConcurrentArraySet() {
+        this(new ArraySet<>());
+    }
+
+    public ConcurrentArraySet(ArraySet<T> initial) {
+        current = new AtomicReference<>(initial);
+    }
+
+    /**
+     * Returns the current version.
+     *
+     * @return immutable set, that is not affected by later updates.
+     */
+    public ArraySet<T> version() {
+        return current.get();
+    }
+
+    /**
+     * Replaces contents with a new version.
+     *
+     * @param next - new contents.
+     * @return the previous version.
+     */
+    public ArraySet<T> publish(ArraySet<T> next) {
+        return current.getAndSet(next);
+    }
+
+    /**
+     * Replaces contents with elements of a collection.
+     * Sorted sets of the same order are taken without sorting.
+     *
+     * @param col - new contents.
+     * @return the previous version.
+     */
+    public ArraySet<T> replace(Collection<T> col) {
+        return publish(new ArraySet<>(col, version().comparator()));
+    }
+
+    /**
+     * Applies a change list to the current version by merging, without sorting the whole set.
+     * Takes {@code O(n + k)} for changes sorted in the order of the set and {@code O(n + k log k)} otherwise.
+     * Concurrent updates are retried against the newer version.
+     *
+     * @param added   - elements to add.
+     * @param removed - elements to remove, applied before additions.
+     * @return the new version.
+     */
+    public ArraySet<T> update(Collection<? extends T> added, Collection<? extends T> removed) {
+        while (true) {
+            ArraySet<T> cur = current.get();
+            ArraySet<T> next = cur;
+            if (!removed.isEmpty()) {
+                next = next.difference(removed);
+            }
+            if (!added.isEmpty()) {
+                next = next.union(added);
+            }
+            if (current.compareAndSet(cur, next)) {
+                return next;
+            }
+        }
+    }
+
+    @Override
+    public T lower(T t) {
+        return version().lower(t);
+    }
+
+    @Override
+    public T floor(T t) {
+        return version().floor(t);
+    }
+
+    @Override
+    public T ceiling(T t) {
+        return version().ceiling(t);
+    }
+
+    @Override
+    public T higher(T t) {
+        return version().higher(t);
+    }
+
+    @Override
+    public T pollFirst() {
+        throw new UnsupportedOperationException("pollFirst unsupported");
+    }
+
+    @Override
+    public T pollLast() {
+        throw new UnsupportedOperationException("pollLast unsupported");
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return version().contains(o);
+    }
+
+    @Override
+    public boolean containsAll(Collection<?> c) {
+        return version().containsAll(c);
+    }
+
+    @Override
+    public int size() {
+        return version().size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return version().isEmpty();
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return version().iterator();
+    }
+
+    @Override
+    public NavigableSet<T> descendingSet() {
+        return version().descendingSet();
+    }
+
+    @Override
+    public Iterator<T> descendingIterator() {
+        return version().descendingIterator();
+    }
+
+    @Override
+    public NavigableSet<T> subSet(T fromElement, boolean fromInclusive, T toElement, boolean toInclusive) {
+        return version().subSet(fromElement, fromInclusive, toElement, toInclusive);
+    }
+
+    @Override
+    public NavigableSet<T> headSet(T toElement, boolean inclusive) {
+        return version().headSet(toElement, inclusive);
+    }
+
+    @Override
+    public NavigableSet<T> tailSet(T fromElement, boolean inclusive) {
+        return version().tailSet(fromElement, inclusive);
+    }
+
+    @Override
+    public SortedSet<T> subSet(T fromElement, T toElement) {
+        return version().subSet(fromElement, toElement);
+    }
+
+    @Override
+    public SortedSet<T> headSet(T toElement) {
+        return version().headSet(toElement);
+    }
+
+    @Override
+    public SortedSet<T> tailSet(T fromElement) {
+        return version().tailSet(fromElement);
+    }
+
+    @Override
+    public Comparator<? super T> comparator() {
+        return version().comparator();
+    }
+
+    @Override
+    public T first() {
+        return version().first();
+    }
+
+    @Override
+    public T last() {
+        return version().last();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return version().equals(o);
+    }
+
+    @Override
+    public int hashCode() {
+        return version().hashCode();
+    }
+}
@@ -0,0 +1,97 @@
+package info.kgeorgiy.ja.karpov.arrayset;
+
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Search index over a sorted list.
+ * Every {@value #BLOCK}-th element is copied into an implicit tree in Eytzinger (breadth-first heap) order,
+ * so the upper levels of the search share a few cache lines and each step reads the next level
+ * at a predictable position. The tree selects a block, which is finished by binary search
+ * over adjacent references of the list.
+ *
+ * @param <T> - element type.
+ */
+final class EytzingerIndex<T> {
+    private static final int BLOCK = 16;
+
+    private final List<T> sorted;
+    private final Object[] tree;
+    private final int[] rank;
+    private final Comparator<? super T> comp;
+
+    /**
+     * Builds index of a sorted list.
+     *
+     * @param sorted - random access elements, sorted and distinct with respect to {@code comp}.
+     * @param comp   - order of the elements.
+     */
+    EytzingerIndex(List<T> sorted, Comparator<? super T> comp) {
+        this.sorted = sorted;
+        this.comp = comp;
+        int samples = (sorted.size() + BLOCK - 1) / BLOCK;
+        tree = new Object[samples + 1];
+        rank = new int[samples + 1];
+        Object[] values = new Object[samples];
+        for (int i = 0; i < samples; i++) {
+            values[i] = sorted.get(i * BLOCK);
+        }
+        fill(values, 0, 1);
+    }
+
+    private int fill(Object[] values, int i, int k) {
+        if (k < tree.length) {
+            i = fill(values, i, 2 * k);
+            tree[k] = values[i];
+            rank[k] = i++;
+            i = fill(values, i, 2 * k + 1);
+        }
+        return i;
+    }
+
+    @SuppressWarnings("unchecked")
+    private T at(int k) {
+        return (T) tree[k];
+    }
+
+    /**
+     * Searches for the key with the contract of {@link java.util.Collections#binarySearch(List, Object, Comparator)}.
+     *
+     * @param key - key to search for.
+     * @return position of the key, or {@code -(insertion point) - 1} if there is none.
+     */
+    int search(T key) {
+        int k = 1;
+        // Branching lets the processor speculatively load the next level: both children share a cache line
+        while (k < tree.length) {
+            if (comp.compare(at(k), key) < 0) {
+                k = 2 * k + 1;
+            } else {
+                k = 2 * k;
+            }
+        }
+        k >>>= Integer.numberOfTrailingZeros(~k) + 1;
+        int block = k == 0 ? tree.length - 1 : rank[k];
+        if (k != 0 && comp.compare(at(k), key) == 0) {
+            return block * BLOCK;
+        }
+        if (block == 0) {
+            return -1;
+        }
+        // Key is strictly between the samples of blocks block - 1 and block
+        int low = (block - 1) * BLOCK + 1;
+        int high = Math.min(block * BLOCK, sorted.size()) - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int c = comp.compare(sorted.get(mid), key);
+            if (c < 0) {
+                low = mid + 1;
+            } else if (c > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -low - 1;
+    }
+}
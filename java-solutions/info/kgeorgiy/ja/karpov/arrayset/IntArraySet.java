@@ -0,0 +1,185 @@
+package info.kgeorgiy.ja.karpov.arrayset;
+
+import java.util.*;
+
+/**
+ * Immutable navigable set of {@code int} values stored in a packed sorted array.
+ * Besides the {@link NavigableSet} methods, offers primitive {@code contains}, {@code lower}, {@code floor},
+ * {@code ceiling} and {@code higher} that never box.
+ * Subset and descending views share the array of the set they were created from.
+ */
+public class IntArraySet extends AbstractArraySet<Integer> {
+    private final int[] values;
+    private final int from;
+    private final int to;
+    private final boolean descending;
+
+    public IntArraySet() {
+        this(new int[0], 0, 0, false);
+    }
+
+    /**
+     * Creates set of the given values. Duplicates are ignored.
+     *
+     * @param values - values of the set, the array is copied.
+     */
+    public IntArraySet(int... values) {
+        this(distinct(values.clone()), false);
+    }
+
+    /**
+     * Creates set of values of a collection. Duplicates are ignored.
+     *
+     * @param col - values of the set.
+     */
+    public IntArraySet(Collection<Integer> col) {
+        this(distinct(col.stream().mapToInt(Integer::intValue).toArray()), false);
+    }
+
+    private IntArraySet(int[] values, boolean descending) {
+        this(values, 0, values.length, descending);
+    }
+
+    private IntArraySet(int[] values, int from, int to, boolean descending) {
+        this.values = values;
+        this.from = from;
+        this.to = to;
+        this.descending = descending;
+    }
+
+    private static int[] distinct(int[] values) {
+        Arrays.sort(values);
+        int size = 0;
+        for (int i = 0; i < values.length; i++) {
+            if (i == 0 || values[i - 1] != values[i]) {
+                values[size++] = values[i];
+            }
+        }
+        return size == values.length ? values : Arrays.copyOf(values, size);
+    }
+
+    private int getInt(int i) {
+        return descending ? values[to - 1 - i] : values[from + i];
+    }
+
+    private int searchInt(int key) {
+        int res = Arrays.binarySearch(values, from, to, key);
+        if (!descending) {
+            return res >= 0 ? res - from : res + from;
+        }
+        return res >= 0 ? to - 1 - res : -(to + res + 1) - 1;
+    }
+
+    private int neighbour(int key, int presentShift, int absentShift, int absent) {
+        int i = shiftedIndex(searchInt(key), presentShift, absentShift);
+        return i != -1 ? getInt(i) : absent;
+    }
+
+    /**
+     * Checks whether the set contains a value.
+     *
+     * @param key - value to check.
+     * @return {@code true} if the value is present.
+     */
+    public boolean contains(int key) {
+        return searchInt(key) >= 0;
+    }
+
+    /**
+     * Returns the greatest value strictly less than the given one, in the order of this set.
+     *
+     * @param key    - value to compare with.
+     * @param absent - value to return if there is none.
+     * @return found value or {@code absent}.
+     */
+    public int lower(int key, int absent) {
+        return neighbour(key, -1, -1, absent);
+    }
+
+    /**
+     * Returns the greatest value less than or equal to the given one, in the order of this set.
+     *
+     * @param key    - value to compare with.
+     * @param absent - value to return if there is none.
+     * @return found value or {@code absent}.
+     */
+    public int floor(int key, int absent) {
+        return neighbour(key, 0, -1, absent);
+    }
+
+    /**
+     * Returns the least value greater than or equal to the given one, in the order of this set.
+     *
+     * @param key    - value to compare with.
+     * @param absent - value to return if there is none.
+     * @return found value or {@code absent}.
+     */
+    public int ceiling(int key, int absent) {
+        return neighbour(key, 0, 0, absent);
+    }
+
+    /**
+     * Returns the least value strictly greater than the given one, in the order of this set.
+     *
+     * @param key    - value to compare with.
+     * @param absent - value to return if there is none.
+     * @return found value or {@code absent}.
+     */
+    public int higher(int key, int absent) {
+        return neighbour(key, 1, 0, absent);
+    }
+
+    /**
+     * Returns values of this set in its order.
+     *
+     * @return new array of values.
+     */
+    public int[] toIntArray() {
+        int[] res = Arrays.copyOfRange(values, from, to);
+        if (descending) {
+            for (int i = 0, j = res.length - 1; i < j; i++, j--) {
+                int tmp = res[i];
+                res[i] = res[j];
+                res[j] = tmp;
+            }
+        }
+        return res;
+    }
+
+    @Override
+    protected Integer get(int i) {
+        return getInt(i);
+    }
+
+    @Override
+    protected int search(Integer val) {
+        return searchInt(val);
+    }
+
+    @Override
+    protected int compare(Integer a, Integer b) {
+        return descending ? Integer.compare(b, a) : Integer.compare(a, b);
+    }
+
+    @Override
+    protected IntArraySet slice(int from, int to) {
+        return descending
+                ? new IntArraySet(values, this.to - to, this.to - from, true)
+                : new IntArraySet(values, this.from + from, this.from + to, false);
+    }
+
+    @Override
+    protected IntArraySet reversed() {
+        return new IntArraySet(values, from, to, !descending);
+    }
+
+    @Override
+    public int size() {
+        return to - from;
+    }
+
+    @Override
+    public Comparator<Integer> comparator() {
+        return descending ? Collections.reverseOrder() : null;
+    }
+}
@@ -0,0 +1,100 @@
+package info.kgeorgiy.ja.karpov.arrayset;
+
+import java.nio.ByteBuffer;
+import java.util.Comparator;
+import java.util.UUID;
+
+/**
+ * Fixed-width binary representation of keys, that can be compared in place.
+ * The encoding must preserve the order of {@link #comparator()}.
+ *
+ * @param <T> - key type.
+ */
+public interface KeyCodec<T> {
+    /**
+     * Signed {@code long} keys in big-endian order.
+     */
+    KeyCodec<Long> LONG = new KeyCodec<>() {
+        @Override
+        public int width() {
+            return Long.BYTES;
+        }
+
+        @Override
+        public Long read(ByteBuffer buffer, int offset) {
+            return buffer.getLong(offset);
+        }
+
+        @Override
+        public void write(ByteBuffer buffer, int offset, Long value) {
+            buffer.putLong(offset, value);
+        }
+
+        @Override
+        public int compare(ByteBuffer buffer, int offset, Long key) {
+            return Long.compare(buffer.getLong(offset), key);
+        }
+
+        @Override
+        public Comparator<Long> comparator() {
+            return Comparator.naturalOrder();
+        }
+    };
+
+    /**
+     * {@link UUID} keys as most and least significant bits, ordered like {@link UUID#compareTo}.
+     */
+    KeyCodec<UUID> UUID = new KeyCodec<>() {
+        @Override
+        public int width() {
+            return 2 * Long.BYTES;
+        }
+
+        @Override
+        public UUID read(ByteBuffer buffer, int offset) {
+            return new UUID(buffer.getLong(offset), buffer.getLong(offset + Long.BYTES));
+        }
+
+        @Override
+        public void write(ByteBuffer buffer, int offset, UUID value) {
+            buffer.putLong(offset, value.getMostSignificantBits());
+            buffer.putLong(offset + Long.BYTES, value.getLeastSignificantBits());
+        }
+
+        @Override
+        public int compare(ByteBuffer buffer, int offset, UUID key) {
+            int res = Long.compare(buffer.getLong(offset), key.getMostSignificantBits());
+            return res != 0 ? res : Long.compare(buffer.getLong(offset + Long.BYTES), key.getLeastSignificantBits());
+        }
+
+        @Override
+        public Comparator<UUID> comparator() {
+            return Comparator.naturalOrder();
+        }
+    };
+
+    /**
+     * Returns size of an encoded key in bytes.
+     */
+    int width();
+
+    /**
+     * Decodes key at the given absolute offset.
+     */
+    T read(ByteBuffer buffer, int offset);
+
+    /**
+     * Encodes key at the given absolute offset.
+     */
+    void write(ByteBuffer buffer, int offset, T value);
+
+    /**
+     * Compares encoded key at the given absolute offset with a key, without decoding it.
+     */
+    int compare(ByteBuffer buffer, int offset, T key);
+
+    /**
+     * Returns order of the keys.
+     */
+    Comparator<T> comparator();
+}
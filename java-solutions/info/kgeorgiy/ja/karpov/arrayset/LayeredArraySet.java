@@ -0,0 +1,233 @@
+package info.kgeorgiy.ja.karpov.arrayset;
+
+import java.util.*;
+import java.util.function.UnaryOperator;
+
+/**
+ * Immutable navigable set of elements of a base set, plus small sorted sets of added and removed elements.
+ * Added elements are absent from the base and removed ones are present in it,
+ * so the layers are combined without materializing the result.
+ * Subset and descending views are taken of every layer.
+ *
+ * @param <T> - element type.
+ */
+final class LayeredArraySet<T> extends AbstractSet<T> implements NavigableSet<T> {
+    private static final Object NONE = new Object();
+
+    final ArraySet<T> base;
+    final ArraySet<T> added;
+    final ArraySet<T> removed;
+    private final Comparator<T> comp;
+
+    LayeredArraySet(ArraySet<T> base, ArraySet<T> added, ArraySet<T> removed, Comparator<T> comp) {
+        this.base = base;
+        this.added = added;
+        this.removed = removed;
+        this.comp = comp;
+    }
+
+    /**
+     * Returns number of buffered changes.
+     */
+    int pending() {
+        return added.size() + removed.size();
+    }
+
+    /**
+     * Merges the layers into a single set.
+     */
+    ArraySet<T> merged() {
+        if (pending() == 0) {
+            return base;
+        }
+        return base.difference(removed).union(added);
+    }
+
+    @SuppressWarnings("unchecked")
+    private LayeredArraySet<T> map(UnaryOperator<NavigableSet<T>> view, Comparator<T> order) {
+        return new LayeredArraySet<>(
+                (ArraySet<T>) view.apply(base),
+                (ArraySet<T>) view.apply(added),
+                (ArraySet<T>) view.apply(removed),
+                order
+        );
+    }
+
+    private T best(T a, T b, boolean up) {
+        if (a == null || b == null) {
+            return a == null ? b : a;
+        }
+        int c = comp.compare(a, b);
+        return up == (c < 0) ? a : b;
+    }
+
+    private T neighbour(T val, boolean up, boolean inclusive) {
+        T res = up ? (inclusive ? base.ceiling(val) : base.higher(val)) : (inclusive ? base.floor(val) : base.lower(val));
+        while (res != null && removed.contains(res)) {
+            res = up ? base.higher(res) : base.lower(res);
+        }
+        T add = up ? (inclusive ? added.ceiling(val) : added.higher(val)) : (inclusive ? added.floor(val) : added.lower(val));
+        return best(res, add, up);
+    }
+
+    @Override
+    public T lower(T t) {
+        return neighbour(t, false, false);
+    }
+
+    @Override
+    public T floor(T t) {
+        return neighbour(t, false, true);
+    }
+
+    @Override
+    public T ceiling(T t) {
+        return neighbour(t, true, true);
+    }
+
+    @Override
+    public T higher(T t) {
+        return neighbour(t, true, false);
+    }
+
+    @Override
+    public T pollFirst() {
+        throw new UnsupportedOperationException("pollFirst unsupported");
+    }
+
+    @Override
+    public T pollLast() {
+        throw new UnsupportedOperationException("pollLast unsupported");
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return added.contains(o) || base.contains(o) && !removed.contains(o);
+    }
+
+    @Override
+    public int size() {
+        return base.size() + added.size() - removed.size();
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return new Iterator<>() {
+            private final Iterator<T> baseIt = base.iterator();
+            private final Iterator<T> addedIt = added.iterator();
+            private final Iterator<T> removedIt = removed.iterator();
+            private Object nextRemoved = advance(removedIt);
+            private Object nextBase = nextBase();
+            private Object nextAdded = advance(addedIt);
+
+            private Object advance(Iterator<T> it) {
+                return it.hasNext() ? it.next() : NONE;
+            }
+
+            @SuppressWarnings("unchecked")
+            private Object nextBase() {
+                while (baseIt.hasNext()) {
+                    T val = baseIt.next();
+                    while (nextRemoved != NONE && comp.compare((T) nextRemoved, val) < 0) {
+                        nextRemoved = advance(removedIt);
+                    }
+                    if (nextRemoved == NONE || comp.compare((T) nextRemoved, val) != 0) {
+                        return val;
+                    }
+                }
+                return NONE;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return nextBase != NONE || nextAdded != NONE;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public T next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Object res;
+                if (nextAdded == NONE || nextBase != NONE && comp.compare((T) nextBase, (T) nextAdded) < 0) {
+                    res = nextBase;
+                    nextBase = nextBase();
+                } else {
+                    res = nextAdded;
+                    nextAdded = advance(addedIt);
+                }
+                return (T) res;
+            }
+        };
+    }
+
+    @Override
+    public NavigableSet<T> descendingSet() {
+        return map(NavigableSet::descendingSet, Collections.reverseOrder(comp));
+    }
+
+    @Override
+    public Iterator<T> descendingIterator() {
+        return descendingSet().iterator();
+    }
+
+    @Override
+    public NavigableSet<T> subSet(T fromElement, boolean fromInclusive, T toElement, boolean toInclusive) {
+        return map(set -> set.subSet(fromElement, fromInclusive, toElement, toInclusive), comp);
+    }
+
+    @Override
+    public NavigableSet<T> headSet(T toElement, boolean inclusive) {
+        return map(set -> set.headSet(toElement, inclusive), comp);
+    }
+
+    @Override
+    public NavigableSet<T> tailSet(T fromElement, boolean inclusive) {
+        return map(set -> set.tailSet(fromElement, inclusive), comp);
+    }
+
+    @Override
+    public Comparator<? super T> comparator() {
+        return comp.equals(Comparator.naturalOrder()) ? null : comp;
+    }
+
+    @Override
+    public SortedSet<T> subSet(T fromElement, T toElement) {
+        return subSet(fromElement, true, toElement, false);
+    }
+
+    @Override
+    public SortedSet<T> headSet(T toElement) {
+        return headSet(toElement, false);
+    }
+
+    @Override
+    public SortedSet<T> tailSet(T fromElement) {
+        return tailSet(fromElement, true);
+    }
+
+    @Override
+    public T first() {
+        return end(true);
+    }
+
+    @Override
+    public T last() {
+        return end(false);
+    }
+
+    private T end(boolean up) {
+        if (isEmpty()) {
+            throw new NoSuchElementException();
+        }
+        T res = null;
+        if (!base.isEmpty()) {
+            res = up ? base.first() : base.last();
+            while (res != null && removed.contains(res)) {
+                res = up ? base.higher(res) : base.lower(res);
+            }
+        }
+        return best(res, added.isEmpty() ? null : up ? added.first() : added.last(), up);
+    }
+}
@@ -0,0 +1,185 @@
+package info.kgeorgiy.ja.karpov.arrayset;
+
+import java.util.*;
+
+/**
+ * Immutable navigable set of {@code long} values stored in a packed sorted array.
+ * Besides the {@link NavigableSet} methods, offers primitive {@code contains}, {@code lower}, {@code floor},
+ * {@code ceiling} and {@code higher} that never box.
+ * Subset and descending views share the array of the set they were created from.
+ */
+public class LongArraySet extends AbstractArraySet<Long> {
+    private final long[] values;
+    private final int from;
+    private final int to;
+    private final boolean descending;
+
+    public LongArraySet() {
+        this(new long[0], 0, 0, false);
+    }
+
+    /**
+     * Creates set of the given values. Duplicates are ignored.
+     *
+     * @param values - values of the set, the array is copied.
+     */
+    public LongArraySet(long... values) {
+        this(distinct(values.clone()), false);
+    }
+
+    /**
+     * Creates set of values of a collection. Duplicates are ignored.
+     *
+     * @param col - values of the set.
+     */
+    public LongArraySet(Collection<Long> col) {
+        this(distinct(col.stream().mapToLong(Long::longValue).toArray()), false);
+    }
+
+    private LongArraySet(long[] values, boolean descending) {
+        this(values, 0, values.length, descending);
+    }
+
+    private LongArraySet(long[] values, int from, int to, boolean descending) {
+        this.values = values;
+        this.from = from;
+        this.to = to;
+        this.descending = descending;
+    }
+
+    private static long[] distinct(long[] values) {
+        Arrays.sort(values);
+        int size = 0;
+        for (int i = 0; i < values.length; i++) {
+            if (i == 0 || values[i - 1] != values[i]) {
+                values[size++] = values[i];
+            }
+        }
+        return size == values.length ? values : Arrays.copyOf(values, size);
+    }
+
+    private long getLong(int i) {
+        return descending ? values[to - 1 - i] : values[from + i];
+    }
+
+    private int searchLong(long key) {
+        int res = Arrays.binarySearch(values, from, to, key);
+        if (!descending) {
+            return res >= 0 ? res - from : res + from;
+        }
+        return res >= 0 ? to - 1 - res : -(to + res + 1) - 1;
+    }
+
+    private long neighbour(long key, int presentShift, int absentShift, long absent) {
+        int i = shiftedIndex(searchLong(key), presentShift, absentShift);
+        return i != -1 ? getLong(i) : absent;
+    }
+
+    /**
+     * Checks whether the set contains a value.
+     *
+     * @param key - value to check.
+     * @return {@code true} if the value is present.
+     */
+    public boolean contains(long key) {
+        return searchLong(key) >= 0;
+    }
+
+    /**
+     * Returns the greatest value strictly less than the given one, in the order of this set.
+     *
+     * @param key    - value to compare with.
+     * @param absent - value to return if there is none.
+     * @return found value or {@code absent}.
+     */
+    public long lower(long key, long absent) {
+        return neighbour(key, -1, -1, absent);
+    }
+
+    /**
+     * Returns the greatest value less than or equal to the given one, in the order of this set.
+     *
+     * @param key    - value to compare with.
+     * @param absent - value to return if there is none.
+     * @return found value or {@code absent}.
+     */
+    public long floor(long key, long absent) {
+        return neighbour(key, 0, -1, absent);
+    }
+
+    /**
+     * Returns the least value greater than or equal to the given one, in the order of this set.
+     *
+     * @param key    - value to compare with.
+     * @param absent - value to return if there is none.
+     * @return found value or {@code absent}.
+     */
+    public long ceiling(long key, long absent) {
+        return neighbour(key, 0, 0, absent);
+    }
+
+    /**
+     * Returns the least value strictly greater than the given one, in the order of this set.
+     *
+     * @param key    - value to compare with.
+     * @param absent - value to return if there is none.
+     * @return found value or {@code absent}.
+     */
+    public long higher(long key, long absent) {
+        return neighbour(key, 1, 0, absent);
+    }
+
+    /**
+     * Returns values of this set in its order.
+     *
+     * @return new array of values.
+     */
+    public long[] toLongArray() {
+        long[] res = Arrays.copyOfRange(values, from, to);
+        if (descending) {
+            for (int i = 0, j = res.length - 1; i < j; i++, j--) {
+                long tmp = res[i];
+                res[i] = res[j];
+                res[j] = tmp;
+            }
+        }
+        return res;
+    }
+
+    @Override
+    protected Long get(int i) {
+        return getLong(i);
+    }
+
+    @Override
+    protected int search(Long val) {
+        return searchLong(val);
+    }
+
+    @Override
+    protected int compare(Long a, Long b) {
+        return descending ? Long.compare(b, a) : Long.compare(a, b);
+    }
+
+    @Override
+    protected LongArraySet slice(int from, int to) {
+        return descending
+                ? new LongArraySet(values, this.to - to, this.to - from, true)
+                : new LongArraySet(values, this.from + from, this.from + to, false);
+    }
+
+    @Override
+    protected LongArraySet reversed() {
+        return new LongArraySet(values, from, to, !descending);
+    }
+
+    @Override
+    public int size() {
+        return to - from;
+    }
+
+    @Override
+    public Comparator<Long> comparator() {
+        return descending ? Collections.reverseOrder() : null;
+    }
+}
@@ -0,0 +1,191 @@
+package info.kgeorgiy.ja.karpov.arrayset;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * Immutable navigable set of fixed-width keys, stored in a memory-mapped file and searched in place.
+ * Opening a set maps the file without reading or decoding keys, so it takes the same time for any size;
+ * pages are loaded by the operating system on first access and are not counted against the heap.
+ * Subset and descending views share the mapping.
+ *
+ * <p>File consists of a header ({@code "ASET"} magic, key width and key count)
+ * followed by keys encoded by {@link KeyCodec}, sorted and distinct.
+ *
+ * @param <T> - key type.
+ */
+public class MappedArraySet<T> extends AbstractArraySet<T> {
+    private static final int MAGIC = 0x41534554;
+    private static final int HEADER = 2 * Integer.BYTES + Long.BYTES;
+    private static final int CHUNK_BYTES = 1 << 30;
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private final KeyCodec<T> codec;
+    private final ByteBuffer[] chunks;
+    private final int shift;
+    private final int from;
+    private final int to;
+    private final boolean descending;
+
+    /**
+     * Maps set from a file.
+     *
+     * @param file  - file created by {@link #write}.
+     * @param codec - codec of the keys.
+     * @throws IOException if the file cannot be read or has invalid format.
+     */
+    public MappedArraySet(Path file, KeyCodec<T> codec) throws IOException {
+        this.codec = codec;
+        int width = codec.width();
+        // Keys never cross chunk boundaries, so every chunk holds a power of two keys
+        shift = Integer.numberOfTrailingZeros(Integer.highestOneBit(CHUNK_BYTES / width));
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER);
+            int read = channel.read(header, 0);
+            header.flip();
+            if (read < HEADER || header.getInt() != MAGIC || header.getInt() != width) {
+                throw new IOException("Invalid set file " + file);
+            }
+            long size = header.getLong();
+            if (size < 0 || size > Integer.MAX_VALUE || HEADER + size * width > channel.size()) {
+                throw new IOException("Invalid set size " + size + " in " + file);
+            }
+            long perChunk = 1L << shift;
+            chunks = new ByteBuffer[(int) ((size + perChunk - 1) >> shift)];
+            for (int i = 0; i < chunks.length; i++) {
+                long count = Math.min(perChunk, size - i * perChunk);
+                chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, HEADER + i * perChunk * width, count * width);
+            }
+            from = 0;
+            to = (int) size;
+        }
+        descending = false;
+    }
+
+    private MappedArraySet(MappedArraySet<T> other, int from, int to, boolean descending) {
+        this.codec = other.codec;
+        this.chunks = other.chunks;
+        this.shift = other.shift;
+        this.from = from;
+        this.to = to;
+        this.descending = descending;
+    }
+
+    /**
+     * Writes keys in the format of this set.
+     *
+     * @param file   - file to write.
+     * @param sorted - keys in the order of the codec, without duplicates.
+     * @param codec  - codec of the keys.
+     * @param <T>    - key type.
+     * @throws IOException              if the file cannot be written.
+     * @throws IllegalArgumentException if keys are not sorted or have duplicates.
+     */
+    public static <T> void write(Path file, Iterable<? extends T> sorted, KeyCodec<T> codec) throws IOException {
+        int width = codec.width();
+        Comparator<T> comp = codec.comparator();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE - BUFFER_SIZE % width);
+            channel.position(HEADER);
+            long size = 0;
+            T prev = null;
+            for (T value : sorted) {
+                if (size > 0 && comp.compare(prev, value) >= 0) {
+                    throw new IllegalArgumentException("Keys are not sorted and distinct: " + prev + ", " + value);
+                }
+                if (buffer.remaining() < width) {
+                    flush(channel, buffer);
+                }
+                codec.write(buffer, buffer.position(), value);
+                buffer.position(buffer.position() + width);
+                prev = value;
+                size++;
+            }
+            flush(channel, buffer);
+            buffer.putInt(MAGIC).putInt(width).putLong(size).flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer, HEADER - buffer.remaining());
+            }
+        }
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private ByteBuffer chunk(int i) {
+        return chunks[i >>> shift];
+    }
+
+    private int offset(int i) {
+        return (i & ((1 << shift) - 1)) * codec.width();
+    }
+
+    private int position(int i) {
+        return descending ? to - 1 - i : from + i;
+    }
+
+    @Override
+    protected T get(int i) {
+        int pos = position(i);
+        return codec.read(chunk(pos), offset(pos));
+    }
+
+    @Override
+    protected int search(T val) {
+        int low = from;
+        int high = to - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int c = codec.compare(chunk(mid), offset(mid), val);
+            if (c < 0) {
+                low = mid + 1;
+            } else if (c > 0) {
+                high = mid - 1;
+            } else {
+                return descending ? to - 1 - mid : mid - from;
+            }
+        }
+        return descending ? -(to - low) - 1 : -(low - from) - 1;
+    }
+
+    @Override
+    protected int compare(T a, T b) {
+        return descending ? codec.comparator().compare(b, a) : codec.comparator().compare(a, b);
+    }
+
+    @Override
+    protected MappedArraySet<T> slice(int from, int to) {
+        return descending
+                ? new MappedArraySet<>(this, this.to - to, this.to - from, true)
+                : new MappedArraySet<>(this, this.from + from, this.from + to, false);
+    }
+
+    @Override
+    protected MappedArraySet<T> reversed() {
+        return new MappedArraySet<>(this, from, to, !descending);
+    }
+
+    @Override
+    public int size() {
+        return to - from;
+    }
+
+    @Override
+    public Comparator<T> comparator() {
+        Comparator<T> comp = codec.comparator();
+        if (descending) {
+            return Collections.reverseOrder(comp);
+        }
+        return comp.equals(Comparator.naturalOrder()) ? null : comp;
+    }
+}
@@ -0,0 +1,310 @@
+package info.kgeorgiy.ja.karpov.arrayset;
+
+import java.util.*;
+
+/**
+ * Mutable navigable set over a sorted array.
+ * Inserts and deletes are buffered in small sorted layers and merged into the array in batches,
+ * once the buffers grow to about square root of the set size.
+ * Readers never lock: every operation works on an immutable snapshot published through a volatile field,
+ * so subset and descending views and iterators reflect the set at the moment they were created.
+ * Writers are serialized.
+ *
+ * @param <T> - element type.
+ */
+public class MutableArraySet<T> extends AbstractSet<T> implements NavigableSet<T> {
+    private static final int MIN_BUFFER = 64;
+
+    private final Comparator<T> comp;
+    private volatile LayeredArraySet<T> state;
+
+    public MutableArraySet() {
+        this(List.of());
+    }
+
+    public MutableArraySet(Collection<T> col) {
+        this(col, null);
+    }
+
+    @SuppressWarnings("unchecked")
+    public MutableArraySet(Collection<T> col, Comparator<T> comp) {
+        this.comp = comp == null ? (Comparator<T>) Comparator.naturalOrder() : comp;
+        state = layered(new ArraySet<>(col, comp));
+    }
+
+    private LayeredArraySet<T> layered(ArraySet<T> base) {
+        return layered(base, empty(), empty());
+    }
+
+    private LayeredArraySet<T> layered(ArraySet<T> base, ArraySet<T> added, ArraySet<T> removed) {
+        LayeredArraySet<T> res = new LayeredArraySet<>(base, added, removed, comp);
+        if (res.pending() > Math.max(MIN_BUFFER, (int) Math.sqrt(base.size()))) {
+            return layered(res.merged());
+        }
+        return res;
+    }
+
+    private ArraySet<T> empty() {
+        return new ArraySet<>(List.of(), comp);
+    }
+
+    private static <T> List<T> single(T val) {
+        return Collections.singletonList(val);
+    }
+
+    /**
+     * Returns immutable snapshot of the current contents.
+     *
+     * @return snapshot, that is not affected by later modifications.
+     */
+    public NavigableSet<T> snapshot() {
+        return state;
+    }
+
+    /**
+     * Merges buffered changes into the sorted array.
+     */
+    public synchronized void compact() {
+        state = layered(state.merged());
+    }
+
+    @Override
+    public synchronized boolean add(T t) {
+        LayeredArraySet<T> cur = state;
+        if (cur.removed.contains(t)) {
+            state = layered(cur.base, cur.added, cur.removed.difference(single(t)));
+        } else if (!cur.base.contains(t) && !cur.added.contains(t)) {
+            state = layered(cur.base, cur.added.union(single(t)), cur.removed);
+        } else {
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public synchronized boolean remove(Object o) {
+        LayeredArraySet<T> cur = state;
+        T t = (T) o;
+        if (cur.added.contains(t)) {
+            state = layered(cur.base, cur.added.difference(single(t)), cur.removed);
+        } else if (cur.base.contains(t) && !cur.removed.contains(t)) {
+            state = layered(cur.base, cur.added, cur.removed.union(single(t)));
+        } else {
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Adds elements of a collection.
+     * Large batches are merged directly into the sorted array.
+     *
+     * @param c - elements to add.
+     * @return {@code true} if the set changed.
+     */
+    @Override
+    public synchronized boolean addAll(Collection<? extends T> c) {
+        LayeredArraySet<T> cur = state;
+        if (c.size() <= MIN_BUFFER) {
+            return super.addAll(c);
+        }
+        ArraySet<T> res = cur.merged().union(c);
+        state = layered(res);
+        return res.size() != cur.size();
+    }
+
+    /**
+     * Returns elements of a collection contained in the set,
+     * so that batch merges compare only elements that {@link #contains} accepts.
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> List<T> members(LayeredArraySet<T> cur, Collection<?> c) {
+        List<T> res = new ArrayList<>();
+        for (Object o : c) {
+            if (cur.contains(o)) {
+                res.add((T) o);
+            }
+        }
+        return res;
+    }
+
+    /**
+     * Removes elements of a collection.
+     * Large batches are merged directly into the sorted array.
+     *
+     * @param c - elements to remove.
+     * @return {@code true} if the set changed.
+     */
+    @Override
+    public synchronized boolean removeAll(Collection<?> c) {
+        LayeredArraySet<T> cur = state;
+        if (c.size() <= MIN_BUFFER) {
+            boolean changed = false;
+            for (Object o : c) {
+                changed |= remove(o);
+            }
+            return changed;
+        }
+        ArraySet<T> res = cur.merged().difference(members(cur, c));
+        state = layered(res);
+        return res.size() != cur.size();
+    }
+
+    @Override
+    public synchronized boolean retainAll(Collection<?> c) {
+        LayeredArraySet<T> cur = state;
+        ArraySet<T> res = cur.merged().intersection(members(cur, c));
+        state = layered(res);
+        return res.size() != cur.size();
+    }
+
+    @Override
+    public synchronized void clear() {
+        state = layered(empty());
+    }
+
+    @Override
+    public synchronized T pollFirst() {
+        return poll(state.isEmpty() ? null : state.first());
+    }
+
+    @Override
+    public synchronized T pollLast() {
+        return poll(state.isEmpty() ? null : state.last());
+    }
+
+    private T poll(T val) {
+        if (val != null) {
+            remove(val);
+        }
+        return val;
+    }
+
+    @Override
+    public T lower(T t) {
+        return state.lower(t);
+    }
+
+    @Override
+    public T floor(T t) {
+        return state.floor(t);
+    }
+
+    @Override
+    public T ceiling(T t) {
+        return state.ceiling(t);
+    }
+
+    @Override
+    public T higher(T t) {
+        return state.higher(t);
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return state.contains(o);
+    }
+
+    @Override
+    public int size() {
+        return state.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return state.isEmpty();
+    }
+
+    /**
+     * Returns iterator over a snapshot of this set.
+     * Its {@code remove} removes the last returned element from this set.
+     */
+    @Override
+    public Iterator<T> iterator() {
+        return snapshotIterator(state.iterator());
+    }
+
+    @Override
+    public Iterator<T> descendingIterator() {
+        return snapshotIterator(state.descendingIterator());
+    }
+
+    private Iterator<T> snapshotIterator(Iterator<T> it) {
+        return new Iterator<>() {
+            private T last;
+            private boolean removable;
+
+            @Override
+            public boolean hasNext() {
+                return it.hasNext();
+            }
+
+            @Override
+            public T next() {
+                last = it.next();
+                removable = true;
+                return last;
+            }
+
+            @Override
+            public void remove() {
+                if (!removable) {
+                    throw new IllegalStateException();
+                }
+                removable = false;
+                MutableArraySet.this.remove(last);
+            }
+        };
+    }
+
+    @Override
+    public NavigableSet<T> descendingSet() {
+        return state.descendingSet();
+    }
+
+    @Override
+    public NavigableSet<T> subSet(T fromElement, boolean fromInclusive, T toElement, boolean toInclusive) {
+        return state.subSet(fromElement, fromInclusive, toElement, toInclusive);
+    }
+
+    @Override
+    public NavigableSet<T> headSet(T toElement, boolean inclusive) {
+        return state.headSet(toElement, inclusive);
+    }
+
+    @Override
+    public NavigableSet<T> tailSet(T fromElement, boolean inclusive) {
+        return state.tailSet(fromElement, inclusive);
+    }
+
+    @Override
+    public SortedSet<T> subSet(T fromElement, T toElement) {
+        return state.subSet(fromElement, toElement);
+    }
+
+    @Override
+    public SortedSet<T> headSet(T toElement) {
+        return state.headSet(toElement);
+    }
+
+    @Override
+    public SortedSet<T> tailSet(T fromElement) {
+        return state.tailSet(fromElement);
+    }
+
+    @Override
+    public Comparator<? super T> comparator() {
+        return state.comparator();
+    }
+
+    @Override
+    public T first() {
+        return state.first();
+    }
+
+    @Override
+    public T last() {
+        return state.last();
+    }
+}
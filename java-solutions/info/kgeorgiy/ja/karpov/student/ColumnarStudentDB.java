@@ -0,0 +1,302 @@
+package info.kgeorgiy.ja.karpov.student;
+
+import info.kgeorgiy.java.advanced.student.*;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.IntPredicate;
+import java.util.function.Supplier;
+
+/**
+ * {@link AdvancedQuery} implementation running queries over a {@link StudentColumns} snapshot.
+ * Snapshots are built by {@link #snapshot(Collection)} and returned by {@link StudentLoader};
+ * queries on them compare dictionary codes instead of strings, scan primitive columns instead of students
+ * and create students only for the rows in the result. Queries on other collections are passed to {@link StudentDB}.
+ * Ties are broken exactly as in {@link StudentDB}.
+ */
+public class ColumnarStudentDB implements AdvancedQuery {
+    private final StudentDB fallback = new StudentDB();
+
+    /**
+     * Returns unmodifiable columnar snapshot of the students, answered by this class over its columns.
+     * Later changes of the collection do not affect the snapshot.
+     *
+     * @param students - students to encode.
+     * @return list of the students in the same order.
+     */
+    public static List<Student> snapshot(Collection<Student> students) {
+        return new StudentColumns(students).rows();
+    }
+
+    /**
+     * Answers query over the columns if the collection is a snapshot.
+     */
+    private static <R> R query(Collection<Student> students, Function<StudentColumns, R> columnar, Supplier<R> other) {
+        return students instanceof StudentColumns.Rows rows ? columnar.apply(rows.columns()) : other.get();
+    }
+
+    private static <T> List<T> map(int size, IntFunction<T> func) {
+        List<T> res = new ArrayList<>(size);
+        for (int row = 0; row < size; row++) {
+            res.add(func.apply(row));
+        }
+        return res;
+    }
+
+    private static String fullName(StudentColumns columns, int row) {
+        return columns.firstNameDict[columns.firstNames[row]] + " " + columns.lastNameDict[columns.lastNames[row]];
+    }
+
+    @Override
+    public List<String> getFirstNames(List<Student> students) {
+        return query(students, columns -> map(columns.size(), row -> columns.firstNameDict[columns.firstNames[row]]),
+                () -> fallback.getFirstNames(students));
+    }
+
+    @Override
+    public List<String> getLastNames(List<Student> students) {
+        return query(students, columns -> map(columns.size(), row -> columns.lastNameDict[columns.lastNames[row]]),
+                () -> fallback.getLastNames(students));
+    }
+
+    @Override
+    public List<GroupName> getGroups(List<Student> students) {
+        return query(students, columns -> map(columns.size(), row -> columns.groupDict[columns.groups[row]]),
+                () -> fallback.getGroups(students));
+    }
+
+    @Override
+    public List<String> getFullNames(List<Student> students) {
+        return query(students, columns -> map(columns.size(), row -> fullName(columns, row)),
+                () -> fallback.getFullNames(students));
+    }
+
+    @Override
+    public Set<String> getDistinctFirstNames(List<Student> students) {
+        // Every dictionary entry occurs in the snapshot
+        return query(students, columns -> new TreeSet<>(Arrays.asList(columns.firstNameDict)),
+                () -> fallback.getDistinctFirstNames(students));
+    }
+
+    private static String maxStudentFirstName(StudentColumns columns) {
+        if (columns.size() == 0) {
+            return "";
+        }
+        int max = 0;
+        for (int row = 1; row < columns.size(); row++) {
+            if (columns.ids[row] > columns.ids[max]) {
+                max = row;
+            }
+        }
+        return columns.firstNameDict[columns.firstNames[max]];
+    }
+
+    @Override
+    public String getMaxStudentFirstName(List<Student> students) {
+        return query(students, ColumnarStudentDB::maxStudentFirstName, () -> fallback.getMaxStudentFirstName(students));
+    }
+
+    private static List<Student> select(StudentColumns columns, int[] order, IntPredicate filter) {
+        List<Student> res = new ArrayList<>();
+        for (int row : order) {
+            if (filter.test(row)) {
+                res.add(columns.student(row));
+            }
+        }
+        return res;
+    }
+
+    @Override
+    public List<Student> sortStudentsById(Collection<Student> students) {
+        return query(students, columns -> select(columns, columns.byId(), row -> true),
+                () -> fallback.sortStudentsById(students));
+    }
+
+    @Override
+    public List<Student> sortStudentsByName(Collection<Student> students) {
+        return query(students, columns -> select(columns, columns.byName(), row -> true),
+                () -> fallback.sortStudentsByName(students));
+    }
+
+    private static List<Student> findByCode(StudentColumns columns, int[] codes, int code) {
+        return code < 0 ? new ArrayList<>() : select(columns, columns.byName(), row -> codes[row] == code);
+    }
+
+    @Override
+    public List<Student> findStudentsByFirstName(Collection<Student> students, String name) {
+        return query(students, columns -> findByCode(columns, columns.firstNames, columns.firstNameCode(name)),
+                () -> fallback.findStudentsByFirstName(students, name));
+    }
+
+    @Override
+    public List<Student> findStudentsByLastName(Collection<Student> students, String name) {
+        return query(students, columns -> findByCode(columns, columns.lastNames, columns.lastNameCode(name)),
+                () -> fallback.findStudentsByLastName(students, name));
+    }
+
+    @Override
+    public List<Student> findStudentsByGroup(Collection<Student> students, GroupName group) {
+        return query(students, columns -> findByCode(columns, columns.groups, group.ordinal()),
+                () -> fallback.findStudentsByGroup(students, group));
+    }
+
+    private static Map<String, String> namesByGroup(StudentColumns columns, GroupName group) {
+        // Pairs of codes sorted by last name and then by first name, so the first pair of each last name wins
+        long[] names = new long[columns.size()];
+        int size = 0;
+        for (int row = 0; row < columns.size(); row++) {
+            if (columns.groups[row] == group.ordinal()) {
+                names[size++] = (long) columns.lastNames[row] << Integer.SIZE | columns.firstNames[row];
+            }
+        }
+        Arrays.sort(names, 0, size);
+        Map<String, String> res = new HashMap<>();
+        for (int i = 0; i < size; i++) {
+            if (i == 0 || names[i] >>> Integer.SIZE != names[i - 1] >>> Integer.SIZE) {
+                res.put(columns.lastNameDict[(int) (names[i] >>> Integer.SIZE)], columns.firstNameDict[(int) names[i]]);
+            }
+        }
+        return res;
+    }
+
+    @Override
+    public Map<String, String> findStudentNamesByGroup(Collection<Student> students, GroupName group) {
+        return query(students, columns -> namesByGroup(columns, group),
+                () -> fallback.findStudentNamesByGroup(students, group));
+    }
+
+    private static List<Group> groups(StudentColumns columns, int[] order) {
+        List<List<Student>> members = new ArrayList<>();
+        for (int i = 0; i < columns.groupDict.length; i++) {
+            members.add(new ArrayList<>());
+        }
+        for (int row : order) {
+            members.get(columns.groups[row]).add(columns.student(row));
+        }
+        List<Group> res = new ArrayList<>();
+        for (int code = 0; code < members.size(); code++) {
+            if (!members.get(code).isEmpty()) {
+                res.add(new Group(columns.groupDict[code], members.get(code)));
+            }
+        }
+        return res;
+    }
+
+    @Override
+    public List<Group> getGroupsByName(Collection<Student> students) {
+        return query(students, columns -> groups(columns, columns.byName()), () -> fallback.getGroupsByName(students));
+    }
+
+    @Override
+    public List<Group> getGroupsById(Collection<Student> students) {
+        return query(students, columns -> groups(columns, columns.sortById(columns.byName())),
+                () -> fallback.getGroupsById(students));
+    }
+
+    private static GroupName largestGroup(StudentColumns columns) {
+        int[] sizes = new int[columns.groupDict.length];
+        for (int code : columns.groups) {
+            sizes[code]++;
+        }
+        // Codes are visited in ascending order, so larger names win ties
+        int largest = -1;
+        for (int code = 0; code < sizes.length; code++) {
+            if (sizes[code] > 0 && (largest < 0 || sizes[code] >= sizes[largest])) {
+                largest = code;
+            }
+        }
+        return largest < 0 ? null : columns.groupDict[largest];
+    }
+
+    @Override
+    public GroupName getLargestGroup(Collection<Student> students) {
+        return query(students, ColumnarStudentDB::largestGroup, () -> fallback.getLargestGroup(students));
+    }
+
+    private static BitSet[] firstNamesByGroup(StudentColumns columns) {
+        BitSet[] names = new BitSet[columns.groupDict.length];
+        Arrays.setAll(names, code -> new BitSet());
+        for (int row = 0; row < columns.size(); row++) {
+            names[columns.groups[row]].set(columns.firstNames[row]);
+        }
+        return names;
+    }
+
+    private static GroupName largestGroupFirstName(StudentColumns columns) {
+        BitSet[] names = firstNamesByGroup(columns);
+        // Codes are visited in ascending order, so smaller names win ties
+        int largest = -1;
+        int largestCount = 0;
+        for (int code = 0; code < names.length; code++) {
+            if (names[code].cardinality() > largestCount) {
+                largestCount = names[code].cardinality();
+                largest = code;
+            }
+        }
+        return largest < 0 ? null : columns.groupDict[largest];
+    }
+
+    @Override
+    public GroupName getLargestGroupFirstName(Collection<Student> students) {
+        return query(students, ColumnarStudentDB::largestGroupFirstName,
+                () -> fallback.getLargestGroupFirstName(students));
+    }
+
+    private static String mostPopularName(StudentColumns columns) {
+        int[] groupCounts = new int[columns.firstNameDict.length];
+        for (BitSet names : firstNamesByGroup(columns)) {
+            names.stream().forEach(name -> groupCounts[name]++);
+        }
+        // Codes are visited in ascending order, so smaller names win ties
+        int popular = -1;
+        for (int code = 0; code < groupCounts.length; code++) {
+            if (popular < 0 || groupCounts[code] > groupCounts[popular]) {
+                popular = code;
+            }
+        }
+        return popular < 0 ? "" : columns.firstNameDict[popular];
+    }
+
+    @Override
+    public String getMostPopularName(Collection<Student> students) {
+        return query(students, ColumnarStudentDB::mostPopularName, () -> fallback.getMostPopularName(students));
+    }
+
+    private static <T> List<T> getByIds(StudentColumns columns, int[] ids, IntFunction<T> func) {
+        StudentIdIndex index = columns.idIndex();
+        List<T> res = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            int row = index.row(id);
+            if (row < 0) {
+                throw new NoSuchElementException("No student with id " + id);
+            }
+            res.add(func.apply(row));
+        }
+        return res;
+    }
+
+    @Override
+    public List<String> getFirstNames(Collection<Student> students, int[] ids) {
+        return query(students, columns -> getByIds(columns, ids, row -> columns.firstNameDict[columns.firstNames[row]]),
+                () -> fallback.getFirstNames(students, ids));
+    }
+
+    @Override
+    public List<String> getLastNames(Collection<Student> students, int[] ids) {
+        return query(students, columns -> getByIds(columns, ids, row -> columns.lastNameDict[columns.lastNames[row]]),
+                () -> fallback.getLastNames(students, ids));
+    }
+
+    @Override
+    public List<GroupName> getGroups(Collection<Student> students, int[] ids) {
+        return query(students, columns -> getByIds(columns, ids, row -> columns.groupDict[columns.groups[row]]),
+                () -> fallback.getGroups(students, ids));
+    }
+
+    @Override
+    public List<String> getFullNames(Collection<Student> students, int[] ids) {
+        return query(students, columns -> getByIds(columns, ids, row -> fullName(columns, row)),
+                () -> fallback.getFullNames(students, ids));
+    }
+}
@@ -0,0 +1,153 @@
+package info.kgeorgiy.ja.karpov.student;
+
+import info.kgeorgiy.java.advanced.student.*;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+/**
+ * {@link AdvancedQuery} implementation for repeated queries over the same students.
+ * {@link #snapshot(Collection)} builds a {@link StudentIndex} of the students once; queries on the returned list
+ * are answered from it. Queries on other collections are passed to {@link StudentDB}.
+ * Returned collections are unmodifiable.
+ */
+public class IndexedStudentDB implements AdvancedQuery {
+    private final StudentDB fallback = new StudentDB();
+
+    /**
+     * Returns unmodifiable snapshot of the students, answered by this class from precomputed indexes.
+     * Later changes of the collection do not affect the snapshot.
+     *
+     * @param students - students to index.
+     * @return list of the students in the same order.
+     */
+    public static List<Student> snapshot(Collection<Student> students) {
+        return new StudentIndex(students).rows();
+    }
+
+    /**
+     * Answers query from the index if the collection is a snapshot.
+     */
+    private static <R> R query(Collection<Student> students, Function<StudentIndex, R> indexed, Supplier<R> other) {
+        return students instanceof StudentIndex.Rows rows ? indexed.apply(rows.index()) : other.get();
+    }
+
+    @Override
+    public List<String> getFirstNames(List<Student> students) {
+        return query(students, index -> index.firstNames, () -> fallback.getFirstNames(students));
+    }
+
+    @Override
+    public List<String> getLastNames(List<Student> students) {
+        return query(students, index -> index.lastNames, () -> fallback.getLastNames(students));
+    }
+
+    @Override
+    public List<GroupName> getGroups(List<Student> students) {
+        return query(students, index -> index.groups, () -> fallback.getGroups(students));
+    }
+
+    @Override
+    public List<String> getFullNames(List<Student> students) {
+        return query(students, index -> index.fullNames, () -> fallback.getFullNames(students));
+    }
+
+    @Override
+    public Set<String> getDistinctFirstNames(List<Student> students) {
+        return query(students, index -> index.distinctFirstNames, () -> fallback.getDistinctFirstNames(students));
+    }
+
+    @Override
+    public String getMaxStudentFirstName(List<Student> students) {
+        return query(students, index -> index.maxStudentFirstName, () -> fallback.getMaxStudentFirstName(students));
+    }
+
+    @Override
+    public List<Student> sortStudentsById(Collection<Student> students) {
+        return query(students, index -> index.byId, () -> fallback.sortStudentsById(students));
+    }
+
+    @Override
+    public List<Student> sortStudentsByName(Collection<Student> students) {
+        return query(students, index -> index.byName, () -> fallback.sortStudentsByName(students));
+    }
+
+    @Override
+    public List<Student> findStudentsByFirstName(Collection<Student> students, String name) {
+        return query(students, index -> index.findByFirstName(name),
+                () -> fallback.findStudentsByFirstName(students, name));
+    }
+
+    @Override
+    public List<Student> findStudentsByLastName(Collection<Student> students, String name) {
+        return query(students, index -> index.findByLastName(name),
+                () -> fallback.findStudentsByLastName(students, name));
+    }
+
+    @Override
+    public List<Student> findStudentsByGroup(Collection<Student> students, GroupName group) {
+        return query(students, index -> index.findByGroup(group), () -> fallback.findStudentsByGroup(students, group));
+    }
+
+    @Override
+    public Map<String, String> findStudentNamesByGroup(Collection<Student> students, GroupName group) {
+        return query(students, index -> index.namesByGroup(group),
+                () -> fallback.findStudentNamesByGroup(students, group));
+    }
+
+    @Override
+    public List<Group> getGroupsByName(Collection<Student> students) {
+        return query(students, index -> index.groupsByName, () -> fallback.getGroupsByName(students));
+    }
+
+    @Override
+    public List<Group> getGroupsById(Collection<Student> students) {
+        return query(students, index -> index.groupsById, () -> fallback.getGroupsById(students));
+    }
+
+    @Override
+    public GroupName getLargestGroup(Collection<Student> students) {
+        return query(students, index -> index.largestGroup, () -> fallback.getLargestGroup(students));
+    }
+
+    @Override
+    public GroupName getLargestGroupFirstName(Collection<Student> students) {
+        return query(students, index -> index.largestGroupFirstName,
+                () -> fallback.getLargestGroupFirstName(students));
+    }
+
+    @Override
+    public String getMostPopularName(Collection<Student> students) {
+        return query(students, index -> index.mostPopularName, () -> fallback.getMostPopularName(students));
+    }
+
+    private static <T> List<T> getByIds(StudentIndex index, int[] ids, Function<Student, T> func) {
+        return IntStream.of(ids).mapToObj(index::byId).map(func).toList();
+    }
+
+    @Override
+    public List<String> getFirstNames(Collection<Student> students, int[] ids) {
+        return query(students, index -> getByIds(index, ids, Student::getFirstName),
+                () -> fallback.getFirstNames(students, ids));
+    }
+
+    @Override
+    public List<String> getLastNames(Collection<Student> students, int[] ids) {
+        return query(students, index -> getByIds(index, ids, Student::getLastName),
+                () -> fallback.getLastNames(students, ids));
+    }
+
+    @Override
+    public List<GroupName> getGroups(Collection<Student> students, int[] ids) {
+        return query(students, index -> getByIds(index, ids, Student::getGroup),
+                () -> fallback.getGroups(students, ids));
+    }
+
+    @Override
+    public List<String> getFullNames(Collection<Student> students, int[] ids) {
+        return query(students, index -> getByIds(index, ids, st -> st.getFirstName() + " " + st.getLastName()),
+                () -> fallback.getFullNames(students, ids));
+    }
+}
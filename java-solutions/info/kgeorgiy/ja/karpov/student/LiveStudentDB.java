@@ -0,0 +1,359 @@
+package info.kgeorgiy.ja.karpov.student;
+
+import info.kgeorgiy.java.advanced.student.*;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * {@link AdvancedQuery} implementation maintaining answers for a changing roster of students.
+ * Students are added, removed and updated by id; sorted orders, groups and counts behind the queries
+ * are updated on each change in logarithmic time. Queries on the {@link #students() roster view}
+ * take time proportional to the size of the result, queries on other collections are passed to {@link StudentDB}.
+ */
+public class LiveStudentDB implements AdvancedQuery {
+    private static final Comparator<Student> BY_NAME = StudentDB.COMP_STUDENT_BY_NAME;
+    private static final Comparator<Student> BY_ID = Comparator.naturalOrder();
+
+    private final StudentDB fallback = new StudentDB();
+    private final List<Student> view = new View();
+
+    private final NavigableMap<Integer, Student> byId = new TreeMap<>();
+    private final NavigableSet<Student> byName = new TreeSet<>(BY_NAME);
+    private final NavigableMap<String, NavigableSet<Student>> byFirstName = new TreeMap<>();
+    private final Map<String, NavigableSet<Student>> byLastName = new HashMap<>();
+    private final NavigableMap<GroupName, NavigableSet<Student>> byGroup = new TreeMap<>();
+    private final NavigableMap<GroupName, NavigableSet<Student>> byGroupId = new TreeMap<>();
+    // Group -> last name -> first name -> number of students
+    private final Map<GroupName, Map<String, NavigableMap<String, Integer>>> namesByGroup = new HashMap<>();
+    // Group -> first name -> number of students
+    private final Map<GroupName, Map<String, Integer>> firstNamesByGroup = new HashMap<>();
+    private final Ranking<GroupName> groupSizes = new Ranking<>(Comparator.naturalOrder());
+    private final Ranking<GroupName> groupFirstNames = new Ranking<>(Comparator.reverseOrder());
+    private final Ranking<String> nameGroups = new Ranking<>(Comparator.reverseOrder());
+    // Roster in the order of ids, rebuilt on first access after a change
+    private Student[] snapshot;
+
+    /**
+     * Creates empty roster.
+     */
+    public LiveStudentDB() {
+    }
+
+    /**
+     * Creates roster of the given students.
+     *
+     * @param students - students with distinct ids.
+     * @throws IllegalArgumentException if ids are not distinct.
+     */
+    public LiveStudentDB(Collection<Student> students) {
+        students.forEach(this::add);
+    }
+
+    /**
+     * Returns unmodifiable view of the roster in the order of ids.
+     * Iterators of the view walk over the roster as it was when they were created;
+     * sizes and indexed accesses read the latest roster, so indexed loops should not overlap changes.
+     * The view is backed by an array copy of the roster, which is made on the first access after a change,
+     * so reading the view after each change takes linear time.
+     */
+    public List<Student> students() {
+        return view;
+    }
+
+    private synchronized Student[] snapshot() {
+        if (snapshot == null) {
+            snapshot = byId.values().toArray(new Student[0]);
+        }
+        return snapshot;
+    }
+
+    private final class View extends AbstractList<Student> implements RandomAccess {
+        @Override
+        public Student get(int index) {
+            Student[] students = snapshot();
+            Objects.checkIndex(index, students.length);
+            return students[index];
+        }
+
+        @Override
+        public int size() {
+            return snapshot().length;
+        }
+
+        @Override
+        public Iterator<Student> iterator() {
+            return listIterator(0);
+        }
+
+        @Override
+        public ListIterator<Student> listIterator(int index) {
+            return Collections.unmodifiableList(Arrays.asList(snapshot())).listIterator(index);
+        }
+    }
+
+    /**
+     * Adds student to the roster.
+     *
+     * @param student - student to add.
+     * @throws IllegalArgumentException if there is a student with the same id.
+     */
+    public synchronized void add(Student student) {
+        if (byId.putIfAbsent(student.getId(), student) != null) {
+            throw new IllegalArgumentException("Duplicate student id " + student.getId());
+        }
+        apply(student, true);
+    }
+
+    /**
+     * Removes student from the roster.
+     *
+     * @param id - student id.
+     * @return removed student, or {@code null} if there was none.
+     */
+    public synchronized Student remove(int id) {
+        Student student = byId.remove(id);
+        if (student != null) {
+            apply(student, false);
+        }
+        return student;
+    }
+
+    /**
+     * Replaces student with the same id.
+     *
+     * @param student - new state of the student.
+     * @return previous state of the student.
+     * @throws IllegalArgumentException if there is no student with the same id.
+     */
+    public synchronized Student update(Student student) {
+        Student old = byId.get(student.getId());
+        if (old == null) {
+            throw new IllegalArgumentException("No student with id " + student.getId());
+        }
+        apply(old, false);
+        byId.put(student.getId(), student);
+        apply(student, true);
+        return old;
+    }
+
+    private void apply(Student student, boolean add) {
+        int delta = add ? 1 : -1;
+        GroupName group = student.getGroup();
+        String firstName = student.getFirstName();
+        snapshot = null;
+        if (add) {
+            byName.add(student);
+        } else {
+            byName.remove(student);
+        }
+        index(byFirstName, firstName, student, BY_NAME, add);
+        index(byLastName, student.getLastName(), student, BY_NAME, add);
+        index(byGroup, group, student, BY_NAME, add);
+        index(byGroupId, group, student, BY_ID, add);
+
+        groupSizes.add(group, delta);
+        // Distinct counts change only when the first name enters or leaves the group
+        Map<String, Integer> groupFirstNameCounts = firstNamesByGroup.computeIfAbsent(group, g -> new HashMap<>());
+        if (count(groupFirstNameCounts, firstName, delta) == (add ? 1 : 0)) {
+            groupFirstNames.add(group, delta);
+            nameGroups.add(firstName, delta);
+        }
+        if (groupFirstNameCounts.isEmpty()) {
+            firstNamesByGroup.remove(group);
+        }
+
+        Map<String, NavigableMap<String, Integer>> lastNames = namesByGroup.computeIfAbsent(group, g -> new HashMap<>());
+        NavigableMap<String, Integer> firstNames = lastNames.computeIfAbsent(student.getLastName(), n -> new TreeMap<>());
+        count(firstNames, firstName, delta);
+        if (firstNames.isEmpty()) {
+            lastNames.remove(student.getLastName());
+            if (lastNames.isEmpty()) {
+                namesByGroup.remove(group);
+            }
+        }
+    }
+
+    private static <K> void index(Map<K, NavigableSet<Student>> index, K key, Student student,
+                                  Comparator<Student> comp, boolean add) {
+        if (add) {
+            index.computeIfAbsent(key, k -> new TreeSet<>(comp)).add(student);
+        } else {
+            NavigableSet<Student> students = index.get(key);
+            students.remove(student);
+            if (students.isEmpty()) {
+                index.remove(key);
+            }
+        }
+    }
+
+    /**
+     * Changes count of a key, dropping zero counts.
+     *
+     * @return new count.
+     */
+    private static <K> int count(Map<K, Integer> counts, K key, int delta) {
+        Integer count = counts.merge(key, delta, (a, b) -> a + b == 0 ? null : a + b);
+        return count == null ? 0 : count;
+    }
+
+    /**
+     * Answers query from the maintained state if the collection is the roster view.
+     */
+    private <R> R query(Collection<Student> students, Supplier<R> live, Supplier<R> other) {
+        if (students != view) {
+            return other.get();
+        }
+        synchronized (this) {
+            return live.get();
+        }
+    }
+
+    private <T> List<T> map(Function<Student, T> func) {
+        List<T> res = new ArrayList<>(byId.size());
+        for (Student student : byId.values()) {
+            res.add(func.apply(student));
+        }
+        return res;
+    }
+
+    private static String getFullName(Student student) {
+        return student.getFirstName() + " " + student.getLastName();
+    }
+
+    @Override
+    public List<String> getFirstNames(List<Student> students) {
+        return query(students, () -> map(Student::getFirstName), () -> fallback.getFirstNames(students));
+    }
+
+    @Override
+    public List<String> getLastNames(List<Student> students) {
+        return query(students, () -> map(Student::getLastName), () -> fallback.getLastNames(students));
+    }
+
+    @Override
+    public List<GroupName> getGroups(List<Student> students) {
+        return query(students, () -> map(Student::getGroup), () -> fallback.getGroups(students));
+    }
+
+    @Override
+    public List<String> getFullNames(List<Student> students) {
+        return query(students, () -> map(LiveStudentDB::getFullName), () -> fallback.getFullNames(students));
+    }
+
+    @Override
+    public Set<String> getDistinctFirstNames(List<Student> students) {
+        return query(students, () -> new TreeSet<>(byFirstName.navigableKeySet()),
+                () -> fallback.getDistinctFirstNames(students));
+    }
+
+    @Override
+    public String getMaxStudentFirstName(List<Student> students) {
+        return query(students, () -> byId.isEmpty() ? "" : byId.lastEntry().getValue().getFirstName(),
+                () -> fallback.getMaxStudentFirstName(students));
+    }
+
+    @Override
+    public List<Student> sortStudentsById(Collection<Student> students) {
+        return query(students, () -> new ArrayList<>(byId.values()), () -> fallback.sortStudentsById(students));
+    }
+
+    @Override
+    public List<Student> sortStudentsByName(Collection<Student> students) {
+        return query(students, () -> new ArrayList<>(byName), () -> fallback.sortStudentsByName(students));
+    }
+
+    private static <K> List<Student> find(Map<K, NavigableSet<Student>> index, K key) {
+        NavigableSet<Student> students = index.get(key);
+        return students == null ? new ArrayList<>() : new ArrayList<>(students);
+    }
+
+    @Override
+    public List<Student> findStudentsByFirstName(Collection<Student> students, String name) {
+        return query(students, () -> find(byFirstName, name), () -> fallback.findStudentsByFirstName(students, name));
+    }
+
+    @Override
+    public List<Student> findStudentsByLastName(Collection<Student> students, String name) {
+        return query(students, () -> find(byLastName, name), () -> fallback.findStudentsByLastName(students, name));
+    }
+
+    @Override
+    public List<Student> findStudentsByGroup(Collection<Student> students, GroupName group) {
+        return query(students, () -> find(byGroup, group), () -> fallback.findStudentsByGroup(students, group));
+    }
+
+    @Override
+    public Map<String, String> findStudentNamesByGroup(Collection<Student> students, GroupName group) {
+        return query(students, () -> {
+            Map<String, String> res = new HashMap<>();
+            namesByGroup.getOrDefault(group, Map.of()).forEach((lastName, firstNames) ->
+                    res.put(lastName, firstNames.firstKey()));
+            return res;
+        }, () -> fallback.findStudentNamesByGroup(students, group));
+    }
+
+    private static List<Group> groups(Map<GroupName, NavigableSet<Student>> index) {
+        List<Group> res = new ArrayList<>(index.size());
+        index.forEach((group, students) -> res.add(new Group(group, new ArrayList<>(students))));
+        return res;
+    }
+
+    @Override
+    public List<Group> getGroupsByName(Collection<Student> students) {
+        return query(students, () -> groups(byGroup), () -> fallback.getGroupsByName(students));
+    }
+
+    @Override
+    public List<Group> getGroupsById(Collection<Student> students) {
+        return query(students, () -> groups(byGroupId), () -> fallback.getGroupsById(students));
+    }
+
+    @Override
+    public GroupName getLargestGroup(Collection<Student> students) {
+        return query(students, () -> groupSizes.best(null), () -> fallback.getLargestGroup(students));
+    }
+
+    @Override
+    public GroupName getLargestGroupFirstName(Collection<Student> students) {
+        return query(students, () -> groupFirstNames.best(null), () -> fallback.getLargestGroupFirstName(students));
+    }
+
+    @Override
+    public String getMostPopularName(Collection<Student> students) {
+        return query(students, () -> nameGroups.best(""), () -> fallback.getMostPopularName(students));
+    }
+
+    private <T> List<T> getById(Function<Student, T> func, int[] ids) {
+        List<T> res = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            res.add(func.apply(byId.get(id)));
+        }
+        return res;
+    }
+
+    @Override
+    public List<String> getFirstNames(Collection<Student> students, int[] ids) {
+        return query(students, () -> getById(Student::getFirstName, ids),
+                () -> fallback.getFirstNames(students, ids));
+    }
+
+    @Override
+    public List<String> getLastNames(Collection<Student> students, int[] ids) {
+        return query(students, () -> getById(Student::getLastName, ids),
+                () -> fallback.getLastNames(students, ids));
+    }
+
+    @Override
+    public List<GroupName> getGroups(Collection<Student> students, int[] ids) {
+        return query(students, () -> getById(Student::getGroup, ids),
+                () -> fallback.getGroups(students, ids));
+    }
+
+    @Override
+    public List<String> getFullNames(Collection<Student> students, int[] ids) {
+        return query(students, () -> getById(LiveStudentDB::getFullName, ids),
+                () -> fallback.getFullNames(students, ids));
+    }
+}
@@ -0,0 +1,50 @@
+package info.kgeorgiy.ja.karpov.student;
+
+import java.util.*;
+
+/**
+ * Counts of keys ordered by count and then by key, so the best key is read without a scan.
+ * Keys with zero count are dropped.
+ *
+ * @param <K> - key type.
+ */
+final class Ranking<K> {
+    private final Map<K, Entry<K>> entries = new HashMap<>();
+    private final NavigableSet<Entry<K>> order;
+
+    private record Entry<K>(K key, int count) {
+    }
+
+    /**
+     * Creates empty ranking.
+     *
+     * @param keyComp - order of keys with equal counts, the greatest key wins.
+     */
+    Ranking(Comparator<? super K> keyComp) {
+        order = new TreeSet<>(Comparator.<Entry<K>>comparingInt(Entry::count).thenComparing(Entry::key, keyComp));
+    }
+
+    /**
+     * Changes count of a key.
+     */
+    void add(K key, int delta) {
+        Entry<K> entry = entries.remove(key);
+        int count = delta;
+        if (entry != null) {
+            order.remove(entry);
+            count += entry.count();
+        }
+        if (count != 0) {
+            entry = new Entry<>(key, count);
+            entries.put(key, entry);
+            order.add(entry);
+        }
+    }
+
+    /**
+     * Returns key with the greatest count, or the default if there are no keys.
+     */
+    K best(K def) {
+        return order.isEmpty() ? def : order.last().key();
+    }
+}
@@ -0,0 +1,274 @@
+package info.kgeorgiy.ja.karpov.student;
+
+import info.kgeorgiy.java.advanced.student.GroupName;
+import info.kgeorgiy.java.advanced.student.Student;
+
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Columnar snapshot of students.
+ * Each row is stored as an id and codes of its first name, last name and group.
+ * Dictionaries are sorted, so codes compare in the same order as the values they encode.
+ * Group codes are {@link GroupName#ordinal() ordinals}.
+ * Snapshots loaded from files keep no students: they are created from the columns on access.
+ */
+final class StudentColumns {
+    private static final GroupName[] GROUPS = GroupName.values();
+
+    final int[] ids;
+    final int[] firstNames;
+    final int[] lastNames;
+    final int[] groups;
+    final String[] firstNameDict;
+    final String[] lastNameDict;
+    final GroupName[] groupDict = GROUPS;
+    private final Student[] students;
+    private final List<Student> rows = new Rows();
+    private volatile int[] byId;
+    private volatile int[] byName;
+    private volatile StudentIdIndex idIndex;
+
+    StudentColumns(Collection<Student> students) {
+        this.students = students.toArray(new Student[0]);
+        int size = this.students.length;
+        ids = new int[size];
+        groups = new int[size];
+        for (int row = 0; row < size; row++) {
+            ids[row] = this.students[row].getId();
+            groups[row] = this.students[row].getGroup().ordinal();
+        }
+        firstNames = new int[size];
+        firstNameDict = encode(Student::getFirstName, firstNames);
+        lastNames = new int[size];
+        lastNameDict = encode(Student::getLastName, lastNames);
+    }
+
+    /**
+     * Creates snapshot from columns.
+     *
+     * @param firstNameDict - sorted distinct first names.
+     * @param lastNameDict  - sorted distinct last names.
+     */
+    StudentColumns(int[] ids, int[] firstNames, String[] firstNameDict,
+                   int[] lastNames, String[] lastNameDict, int[] groups) {
+        this.students = null;
+        this.ids = ids;
+        this.firstNames = firstNames;
+        this.firstNameDict = firstNameDict;
+        this.lastNames = lastNames;
+        this.lastNameDict = lastNameDict;
+        this.groups = groups;
+    }
+
+    private String[] encode(Function<Student, String> field, int[] codes) {
+        Dictionary dict = new Dictionary();
+        for (int row = 0; row < students.length; row++) {
+            codes[row] = dict.add(field.apply(students[row]));
+        }
+        return dict.sort(codes);
+    }
+
+    /**
+     * Builder of a sorted string dictionary.
+     * Values get provisional codes in order of appearance, which are renumbered once all values are known.
+     */
+    static final class Dictionary {
+        private final Map<String, Integer> codes = new HashMap<>();
+
+        /**
+         * Returns provisional code of a value.
+         */
+        int add(String value) {
+            Integer code = codes.get(value);
+            if (code == null) {
+                code = codes.size();
+                codes.put(value, code);
+            }
+            return code;
+        }
+
+        /**
+         * Sorts the dictionary and renumbers provisional codes in place.
+         *
+         * @param codes - provisional codes.
+         * @return values in ascending order.
+         */
+        String[] sort(int[] codes) {
+            String[] values = this.codes.keySet().toArray(new String[0]);
+            Arrays.sort(values);
+            int[] remap = new int[values.length];
+            for (int i = 0; i < values.length; i++) {
+                remap[this.codes.get(values[i])] = i;
+            }
+            for (int row = 0; row < codes.length; row++) {
+                codes[row] = remap[codes[row]];
+            }
+            return values;
+        }
+    }
+
+    /**
+     * Builder of a snapshot from rows, encoding names as they arrive.
+     */
+    static final class Builder {
+        private final Dictionary firstNameDict = new Dictionary();
+        private final Dictionary lastNameDict = new Dictionary();
+        private int[] ids = new int[16];
+        private int[] firstNames = new int[16];
+        private int[] lastNames = new int[16];
+        private int[] groups = new int[16];
+        private int size;
+
+        void add(int id, String firstName, String lastName, GroupName group) {
+            if (size == ids.length) {
+                int capacity = ids.length * 2;
+                ids = Arrays.copyOf(ids, capacity);
+                firstNames = Arrays.copyOf(firstNames, capacity);
+                lastNames = Arrays.copyOf(lastNames, capacity);
+                groups = Arrays.copyOf(groups, capacity);
+            }
+            ids[size] = id;
+            firstNames[size] = firstNameDict.add(firstName);
+            lastNames[size] = lastNameDict.add(lastName);
+            groups[size] = group.ordinal();
+            size++;
+        }
+
+        StudentColumns build() {
+            int[] firstNames = Arrays.copyOf(this.firstNames, size);
+            int[] lastNames = Arrays.copyOf(this.lastNames, size);
+            return new StudentColumns(Arrays.copyOf(ids, size), firstNames, firstNameDict.sort(firstNames),
+                    lastNames, lastNameDict.sort(lastNames), Arrays.copyOf(groups, size));
+        }
+    }
+
+    int size() {
+        return ids.length;
+    }
+
+    Student student(int row) {
+        return students != null ? students[row]
+                : new Student(ids[row], firstNameDict[firstNames[row]], lastNameDict[lastNames[row]], groupDict[groups[row]]);
+    }
+
+    /**
+     * Returns unmodifiable list of the students of this snapshot, recognized by {@link ColumnarStudentDB}.
+     */
+    List<Student> rows() {
+        return rows;
+    }
+
+    /**
+     * Students of a snapshot.
+     */
+    final class Rows extends AbstractList<Student> implements RandomAccess {
+        @Override
+        public Student get(int index) {
+            Objects.checkIndex(index, size());
+            return student(index);
+        }
+
+        @Override
+        public int size() {
+            return ids.length;
+        }
+
+        StudentColumns columns() {
+            return StudentColumns.this;
+        }
+    }
+
+    /**
+     * Returns code of a first name, or {@code -1} if no student has it.
+     */
+    int firstNameCode(String name) {
+        return Math.max(Arrays.binarySearch(firstNameDict, name), -1);
+    }
+
+    /**
+     * Returns code of a last name, or {@code -1} if no student has it.
+     */
+    int lastNameCode(String name) {
+        return Math.max(Arrays.binarySearch(lastNameDict, name), -1);
+    }
+
+    /**
+     * Returns rows ordered by id; ties keep row order.
+     * The array is computed on first use and shared, so it must not be modified.
+     */
+    int[] byId() {
+        int[] order = byId;
+        if (order == null) {
+            order = new int[size()];
+            Arrays.setAll(order, row -> row);
+            order = sortById(order);
+            byId = order;
+        }
+        return order;
+    }
+
+    /**
+     * Stably sorts rows by id.
+     */
+    int[] sortById(int[] rows) {
+        // Positions in the low half make the sort stable
+        long[] keys = new long[rows.length];
+        for (int i = 0; i < rows.length; i++) {
+            keys[i] = (long) ids[rows[i]] << Integer.SIZE | i;
+        }
+        Arrays.sort(keys);
+        int[] res = new int[rows.length];
+        for (int i = 0; i < rows.length; i++) {
+            res[i] = rows[(int) keys[i]];
+        }
+        return res;
+    }
+
+    /**
+     * Returns rows in the order of {@link StudentDB#COMP_STUDENT_BY_NAME}; ties keep row order.
+     * Rows ordered by id are stably sorted by descending first name and then by descending last name codes.
+     * The array is computed on first use and shared, so it must not be modified.
+     */
+    int[] byName() {
+        int[] order = byName;
+        if (order == null) {
+            order = countingSort(countingSort(byId(), firstNames, firstNameDict.length),
+                    lastNames, lastNameDict.length);
+            byName = order;
+        }
+        return order;
+    }
+
+    /**
+     * Stably sorts rows by descending codes.
+     */
+    private static int[] countingSort(int[] rows, int[] codes, int codeCount) {
+        int[] starts = new int[codeCount + 1];
+        for (int row : rows) {
+            starts[codeCount - 1 - codes[row] + 1]++;
+        }
+        for (int i = 0; i < codeCount; i++) {
+            starts[i + 1] += starts[i];
+        }
+        int[] res = new int[rows.length];
+        for (int row : rows) {
+            res[starts[codeCount - 1 - codes[row]]++] = row;
+        }
+        return res;
+    }
+
+    /**
+     * Returns index of rows by id, built on first use.
+     *
+     * @throws IllegalStateException if ids are not distinct.
+     */
+    StudentIdIndex idIndex() {
+        StudentIdIndex index = idIndex;
+        if (index == null) {
+            index = new StudentIdIndex(ids);
+            idIndex = index;
+        }
+        return index;
+    }
+}
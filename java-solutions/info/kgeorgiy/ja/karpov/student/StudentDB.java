@@ -3,23 +3,73 @@ package info.kgeorgiy.ja.karpov.student;
 import info.kgeorgiy.java.advanced.student.*;
 
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import java.util.function.BinaryOperator;
 import java.util.function.Function;
+import java.util.function.Predicate;
 import java.util.function.Supplier;
+import java.util.stream.Collector;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 public class StudentDB implements AdvancedQuery {
-    private static final Comparator<Student> COMP_STUDENT_BY_NAME =
+    static final Comparator<Student> COMP_STUDENT_BY_NAME =
             Comparator.comparing(Student::getLastName).reversed()
                     .thenComparing(Comparator.comparing(Student::getFirstName).reversed().thenComparingInt(Student::getId));
 
+    private final boolean parallel;
+    private final ForkJoinPool pool;
+
+    /**
+     * Creates sequential query engine.
+     */
+    public StudentDB() {
+        this(false);
+    }
+
+    /**
+     * Creates query engine.
+     *
+     * @param parallel - whether to run queries on parallel streams in the common pool.
+     */
+    public StudentDB(boolean parallel) {
+        this.parallel = parallel;
+        this.pool = null;
+    }
+
+    /**
+     * Creates query engine running queries on parallel streams in the given pool.
+     *
+     * @param pool - pool for parallel streams.
+     */
+    public StudentDB(ForkJoinPool pool) {
+        this.parallel = true;
+        this.pool = pool;
+    }
+
+    private <T> Stream<T> stream(Collection<T> objects) {
+        return parallel ? objects.parallelStream() : objects.stream();
+    }
+
+    /**
+     * Runs query in the pool of this engine, so that parallel streams inside use its workers.
+     * Parallel streams are ordered, so results, including ties, are the same as in sequential mode.
+     */
+    private <R> R run(Supplier<R> query) {
+        if (pool == null || ForkJoinTask.getPool() == pool) {
+            return query.get();
+        }
+        return pool.invoke(ForkJoinTask.adapt(query::get));
+    }
+
     private String getFullName(Student st) {
         return st.getFirstName() + " " + st.getLastName();
     }
     private <T, C extends Collection<T>> C generalMap(Collection<Student> students, Function<Student, T> func,
                                                       Supplier<C> collector) {
-        return students.stream().map(func).collect(Collectors.toCollection(collector));
+        return run(() -> stream(students).map(func).collect(Collectors.toCollection(collector)));
     }
 
     private <T> List<T> listMap(Collection<Student> students, Function<Student, T> func) {
@@ -52,7 +102,7 @@ public class StudentDB implements AdvancedQuery {
     }
 
     public <S, T> T generalGetMax(Collection<S> objects, Comparator<S> comp, Function<S, T> func, T def) {
-        return objects.stream().max(comp).map(func).orElse(def);
+        return run(() -> stream(objects).max(comp).map(func).orElse(def));
     }
 
     @Override
@@ -61,7 +111,7 @@ public class StudentDB implements AdvancedQuery {
     }
 
     private <T> List<T> generalSort(Collection<T> objs, Comparator<T> comp) {
-        return objs.stream().sorted(comp).toList();
+        return run(() -> stream(objs).sorted(comp).toList());
     }
 
     @Override
@@ -75,7 +125,7 @@ public class StudentDB implements AdvancedQuery {
     }
 
     private <T> List<Student> generalFind(Collection<Student> students, Function<Student, T> func, T obj) {
-        return students.stream().filter((Student st) -> func.apply(st).equals(obj)).toList();
+        return run(() -> stream(students).filter((Student st) -> func.apply(st).equals(obj)).toList());
     }
 
     private <T> List<Student> generalFindListSortByName(Collection<Student> students,
@@ -98,97 +148,245 @@ public class StudentDB implements AdvancedQuery {
         return generalFindListSortByName(students, Student::getGroup, group);
     }
 
+    private <T> List<T> generalPage(Collection<T> objects, Predicate<T> filter, Comparator<T> comp,
+                                    int offset, int limit) {
+        return run(() -> stream(objects).filter(filter).collect(TopK.collector(comp, offset, limit)));
+    }
+
+    private List<Student> generalPageAfter(Collection<Student> students, Predicate<Student> filter,
+                                           Comparator<Student> comp, Student after, int limit) {
+        Predicate<Student> next = after == null ? filter : filter.and(st -> comp.compare(st, after) > 0);
+        return generalPage(students, next, comp, 0, limit);
+    }
+
+    private static <T> Predicate<Student> has(Function<Student, T> func, T obj) {
+        return st -> func.apply(st).equals(obj);
+    }
+
+    /**
+     * Returns page of {@link #sortStudentsById(Collection)}.
+     * Keeps at most {@code offset + limit} students instead of sorting all of them.
+     *
+     * @param students - students to sort.
+     * @param offset   - number of students to skip.
+     * @param limit    - maximal number of students to return.
+     * @return students at positions {@code [offset, offset + limit)} of the sorted list.
+     * @throws IllegalArgumentException if offset or limit is negative.
+     */
+    public List<Student> sortStudentsById(Collection<Student> students, int offset, int limit) {
+        return generalPage(students, st -> true, Comparator.naturalOrder(), offset, limit);
+    }
+
+    /**
+     * Returns page of {@link #sortStudentsById(Collection)} following the given student.
+     *
+     * @param students - students to sort.
+     * @param after    - last student of the previous page, {@code null} for the first page.
+     * @param limit    - maximal number of students to return.
+     * @return first {@code limit} students greater than {@code after}.
+     * @throws IllegalArgumentException if limit is negative.
+     */
+    public List<Student> sortStudentsById(Collection<Student> students, Student after, int limit) {
+        return generalPageAfter(students, st -> true, Comparator.naturalOrder(), after, limit);
+    }
+
+    /**
+     * Returns page of {@link #sortStudentsByName(Collection)}.
+     * Keeps at most {@code offset + limit} students instead of sorting all of them.
+     *
+     * @param students - students to sort.
+     * @param offset   - number of students to skip.
+     * @param limit    - maximal number of students to return.
+     * @return students at positions {@code [offset, offset + limit)} of the sorted list.
+     * @throws IllegalArgumentException if offset or limit is negative.
+     */
+    public List<Student> sortStudentsByName(Collection<Student> students, int offset, int limit) {
+        return generalPage(students, st -> true, COMP_STUDENT_BY_NAME, offset, limit);
+    }
+
+    /**
+     * Returns page of {@link #sortStudentsByName(Collection)} following the given student.
+     *
+     * @param students - students to sort.
+     * @param after    - last student of the previous page, {@code null} for the first page.
+     * @param limit    - maximal number of students to return.
+     * @return first {@code limit} students greater than {@code after}.
+     * @throws IllegalArgumentException if limit is negative.
+     */
+    public List<Student> sortStudentsByName(Collection<Student> students, Student after, int limit) {
+        return generalPageAfter(students, st -> true, COMP_STUDENT_BY_NAME, after, limit);
+    }
+
+    /**
+     * Returns page of {@link #findStudentsByFirstName(Collection, String)}.
+     *
+     * @see #sortStudentsByName(Collection, int, int)
+     */
+    public List<Student> findStudentsByFirstName(Collection<Student> students, String name, int offset, int limit) {
+        return generalPage(students, has(Student::getFirstName, name), COMP_STUDENT_BY_NAME, offset, limit);
+    }
+
+    /**
+     * Returns page of {@link #findStudentsByFirstName(Collection, String)} following the given student.
+     *
+     * @see #sortStudentsByName(Collection, Student, int)
+     */
+    public List<Student> findStudentsByFirstName(Collection<Student> students, String name, Student after, int limit) {
+        return generalPageAfter(students, has(Student::getFirstName, name), COMP_STUDENT_BY_NAME, after, limit);
+    }
+
+    /**
+     * Returns page of {@link #findStudentsByLastName(Collection, String)}.
+     *
+     * @see #sortStudentsByName(Collection, int, int)
+     */
+    public List<Student> findStudentsByLastName(Collection<Student> students, String name, int offset, int limit) {
+        return generalPage(students, has(Student::getLastName, name), COMP_STUDENT_BY_NAME, offset, limit);
+    }
+
+    /**
+     * Returns page of {@link #findStudentsByLastName(Collection, String)} following the given student.
+     *
+     * @see #sortStudentsByName(Collection, Student, int)
+     */
+    public List<Student> findStudentsByLastName(Collection<Student> students, String name, Student after, int limit) {
+        return generalPageAfter(students, has(Student::getLastName, name), COMP_STUDENT_BY_NAME, after, limit);
+    }
+
+    /**
+     * Returns page of {@link #findStudentsByGroup(Collection, GroupName)}.
+     *
+     * @see #sortStudentsByName(Collection, int, int)
+     */
+    public List<Student> findStudentsByGroup(Collection<Student> students, GroupName group, int offset, int limit) {
+        return generalPage(students, has(Student::getGroup, group), COMP_STUDENT_BY_NAME, offset, limit);
+    }
+
+    /**
+     * Returns page of {@link #findStudentsByGroup(Collection, GroupName)} following the given student.
+     *
+     * @see #sortStudentsByName(Collection, Student, int)
+     */
+    public List<Student> findStudentsByGroup(Collection<Student> students, GroupName group, Student after, int limit) {
+        return generalPageAfter(students, has(Student::getGroup, group), COMP_STUDENT_BY_NAME, after, limit);
+    }
+
     // :NOTE: использовать стандартную функцию минимума
     @Override
     public Map<String, String> findStudentNamesByGroup(Collection<Student> students, GroupName group) {
-        return findStudentsByGroup(students, group).stream()
+        return run(() -> stream(findStudentsByGroup(students, group))
                 .collect(Collectors.toMap(Student::getLastName, Student::getFirstName,
-                        BinaryOperator.minBy(String::compareTo)));
+                        BinaryOperator.minBy(String::compareTo))));
     }
 
-    private List<Group> generalGetGroup(Collection<Student> students,
-                                        Comparator<Group> groupComp, Comparator<Student> studentComp) {
-        return students.stream().map(Student::getGroup).distinct()
-                .map((GroupName name) -> new Group(name, generalSort(findStudentsByGroup(students, name), studentComp)))
-                .sorted(groupComp).toList();
+    private List<Group> generalGetGroup(Collection<Student> students, Comparator<Student> studentComp) {
+        return run(() -> stream(students)
+                .collect(Collectors.groupingBy(Student::getGroup, TreeMap::new, Collectors.toList()))
+                .entrySet().stream()
+                .map(entry -> new Group(entry.getKey(), generalSort(entry.getValue(), studentComp)))
+                .toList());
     }
 
     @Override
     public List<Group> getGroupsByName(Collection<Student> students) {
-        return generalGetGroup(students, Comparator.comparing(Group::getName), COMP_STUDENT_BY_NAME);
+        return generalGetGroup(students, COMP_STUDENT_BY_NAME);
     }
 
     @Override
     public List<Group> getGroupsById(Collection<Student> students) {
-        return generalGetGroup(students, Comparator.comparing(Group::getName), Comparator.comparingInt(Student::getId));
+        return generalGetGroup(students, Comparator.comparingInt(Student::getId).thenComparing(COMP_STUDENT_BY_NAME));
     }
 
-    private GroupName generalLargestGroup(Collection<Student> students,
-                                          Function<List<Student>, List<Student>> studentFunc, Comparator<Group> comp) {
-        return generalGetMax(getGroupsByName(students)
-                        .stream()
-                        .map((Group g) -> new Group(g.getName(), studentFunc.apply(g.getStudents())))
-                        .toList(),
-                Comparator.comparingInt((Group g) -> g.getStudents().size())
-                        .thenComparing(comp),
-                Group::getName, null);
+    private <K> K generalLargest(Collection<Student> students, Function<Student, K> key,
+                                 Collector<Student, ?, Integer> size, Comparator<K> keyComp, K def) {
+        return generalGetMax(run(() -> stream(students).collect(Collectors.groupingBy(key, size))).entrySet(),
+                Map.Entry.<K, Integer>comparingByValue().thenComparing(Map.Entry.comparingByKey(keyComp)),
+                Map.Entry::getKey, def);
+    }
+
+    private static <T> Collector<Student, ?, Integer> distinctCount(Function<Student, T> func) {
+        return Collectors.collectingAndThen(Collectors.mapping(func, Collectors.toSet()), Set::size);
     }
 
     @Override
     public GroupName getLargestGroup(Collection<Student> students) {
-        return generalLargestGroup(students, Function.identity(), Comparator.comparing(Group::getName));
+        return generalLargest(students, Student::getGroup, Collectors.summingInt(st -> 1),
+                Comparator.naturalOrder(), null);
     }
 
     @Override
     public GroupName getLargestGroupFirstName(Collection<Student> students) {
-        return generalLargestGroup(students, list ->
-                        getDistinctFirstNames(list).stream()
-                                .map(name -> findStudentsByFirstName(students, name).get(0))
-                                .toList(),
-                Comparator.comparing(Group::getName).reversed());
-    }
-
-    private long getGroupCountWithName(List<Group> groups, String name) {
-        return groups.stream()
-                .filter(g -> g.getStudents().stream().anyMatch(st -> st.getFirstName().equals(name))).count();
-    }
-
-    private String getMPNProxy(List<Group> groups, Collection<Student> students) {
-        return generalGetMax(getDistinctFirstNames((List<Student>) students),
-                Comparator.comparing((String name) -> getGroupCountWithName(groups, name))
-                        .thenComparing(Comparator.reverseOrder()), Function.identity(), "");
+        return generalLargest(students, Student::getGroup, distinctCount(Student::getFirstName),
+                Comparator.reverseOrder(), null);
     }
 
     @Override
     public String getMostPopularName(Collection<Student> students) {
-        return getMPNProxy(getGroupsByName(students), students);
-    }
-
-    private Map<Integer, Student> getStudentMap(Collection<Student> students) {
-        return students.stream().collect(Collectors.toMap(Student::getId, Function.identity()));
+        return generalLargest(students, Student::getFirstName, distinctCount(Student::getGroup),
+                Comparator.reverseOrder(), "");
     }
 
-    private <T> List<T>  generalGetById(Map<Integer, Student> studentMap, Function<Student, T> func, final int[] ids) {
-        return IntStream.of(ids).mapToObj(id -> func.apply(studentMap.get(id))).toList();
+    private <T> List<T> generalGetById(StudentIdIndex index, Function<Student, T> func, final int[] ids) {
+        IntStream stream = parallel ? IntStream.of(ids).parallel() : IntStream.of(ids);
+        return run(() -> stream.mapToObj(id -> func.apply(index.get(id))).toList());
     }
 
     @Override
     public List<String> getFirstNames(Collection<Student> students, final int[] ids) {
-        return generalGetById(getStudentMap(students), Student::getFirstName, ids);
+        return getFirstNames(new StudentIdIndex(students), ids);
     }
 
     @Override
     public List<String> getLastNames(Collection<Student> students, final int[] ids) {
-        return generalGetById(getStudentMap(students), Student::getLastName, ids);
+        return getLastNames(new StudentIdIndex(students), ids);
     }
 
     @Override
     public List<GroupName> getGroups(Collection<Student> students, final int[] ids) {
-        return generalGetById(getStudentMap(students), Student::getGroup, ids);
+        return getGroups(new StudentIdIndex(students), ids);
     }
 
     @Override
     public List<String> getFullNames(Collection<Student> students, final int[] ids) {
-        return generalGetById(getStudentMap(students), this::getFullName, ids);
+        return getFullNames(new StudentIdIndex(students), ids);
+    }
+
+    /**
+     * Returns first names of students with the given ids, looking them up in a prebuilt index.
+     * Repeated queries on the same students may share one index instead of building it on every call.
+     *
+     * @param index - index of students.
+     * @param ids   - student ids.
+     * @return first names in the order of ids.
+     */
+    public List<String> getFirstNames(StudentIdIndex index, final int[] ids) {
+        return generalGetById(index, Student::getFirstName, ids);
+    }
+
+    /**
+     * Returns last names of students with the given ids, looking them up in a prebuilt index.
+     *
+     * @see #getFirstNames(StudentIdIndex, int[])
+     */
+    public List<String> getLastNames(StudentIdIndex index, final int[] ids) {
+        return generalGetById(index, Student::getLastName, ids);
+    }
+
+    /**
+     * Returns groups of students with the given ids, looking them up in a prebuilt index.
+     *
+     * @see #getFirstNames(StudentIdIndex, int[])
+     */
+    public List<GroupName> getGroups(StudentIdIndex index, final int[] ids) {
+        return generalGetById(index, Student::getGroup, ids);
+    }
+
+    /**
+     * Returns full names of students with the given ids, looking them up in a prebuilt index.
+     *
+     * @see #getFirstNames(StudentIdIndex, int[])
+     */
+    public List<String> getFullNames(StudentIdIndex index, final int[] ids) {
+        return generalGetById(index, this::getFullName, ids);
     }
 }
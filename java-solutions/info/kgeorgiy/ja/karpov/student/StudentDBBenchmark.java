@@ -0,0 +1,83 @@
+package info.kgeorgiy.ja.karpov.student;
+
+import info.kgeorgiy.java.advanced.student.AdvancedQuery;
+import info.kgeorgiy.java.advanced.student.GroupName;
+import info.kgeorgiy.java.advanced.student.Student;
+
+import java.util.*;
+import java.util.function.BiFunction;
+
+/**
+ * Measures group queries of {@link AdvancedQuery} implementations.
+ * Usage: {@code StudentDBBenchmark [students [first names]]}.
+ * Students are spread uniformly over all groups and the given number of distinct first names.
+ */
+public class StudentDBBenchmark {
+    private static final int DEFAULT_STUDENTS = 1_000_000;
+    private static final int DEFAULT_NAMES = 10_000;
+    private static final int LAST_NAMES = 1_000;
+    private static final int WARMUP_RUNS = 1;
+    private static final int RUNS = 3;
+
+    private static volatile Object sink;
+
+    private record Query(String name, BiFunction<AdvancedQuery, List<Student>, Object> query) {
+    }
+
+    private static final List<Query> QUERIES = List.of(
+            new Query("getGroupsByName", AdvancedQuery::getGroupsByName),
+            new Query("getGroupsById", AdvancedQuery::getGroupsById),
+            new Query("getLargestGroup", AdvancedQuery::getLargestGroup),
+            new Query("getLargestGroupFirstName", AdvancedQuery::getLargestGroupFirstName),
+            new Query("getMostPopularName", AdvancedQuery::getMostPopularName)
+    );
+
+    private static List<Student> generate(int count, int names) {
+        Random random = new Random(count);
+        GroupName[] groups = GroupName.values();
+        List<Student> students = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            students.add(new Student(i, "First" + random.nextInt(names), "Last" + random.nextInt(LAST_NAMES),
+                    groups[random.nextInt(groups.length)]));
+        }
+        return students;
+    }
+
+    private static double measure(AdvancedQuery db, Query query, List<Student> students) {
+        long start = System.nanoTime();
+        sink = query.query().apply(db, students);
+        return (System.nanoTime() - start) / 1e6;
+    }
+
+    private static double best(AdvancedQuery db, Query query, List<Student> students) {
+        for (int i = 0; i < WARMUP_RUNS; i++) {
+            measure(db, query, students);
+        }
+        double best = Double.MAX_VALUE;
+        for (int i = 0; i < RUNS; i++) {
+            best = Math.min(best, measure(db, query, students));
+        }
+        return best;
+    }
+
+    public static void main(String[] args) {
+        int count = args != null && args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_STUDENTS;
+        int names = args != null && args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_NAMES;
+        List<Student> students = generate(count, names);
+
+        long start = System.nanoTime();
+        List<Student> indexed = IndexedStudentDB.snapshot(students);
+        System.out.printf("%d students, %d first names; index built in %.1f ms",
+                count, names, (System.nanoTime() - start) / 1e6);
+        start = System.nanoTime();
+        List<Student> columnar = ColumnarStudentDB.snapshot(students);
+        System.out.printf(", columns built in %.1f ms%n", (System.nanoTime() - start) / 1e6);
+
+        System.out.printf("%28s%14s%14s%14s%14s%n", "query (ms)", "StudentDB", "Parallel", "Columnar", "Indexed");
+        for (Query query : QUERIES) {
+            System.out.printf("%28s%14.2f%14.2f%14.2f%14.4f%n", query.name(), best(new StudentDB(), query, students),
+                    best(new StudentDB(true), query, students), best(new ColumnarStudentDB(), query, columnar),
+                    best(new IndexedStudentDB(), query, indexed));
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package info.kgeorgiy.ja.karpov.student;
+
+import info.kgeorgiy.java.advanced.student.Student;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Rows of students by id without boxing.
+ * Compact id ranges are stored in a dense array indexed by {@code id - min},
+ * others in an open-addressing table with linear probing.
+ * An index may be passed to the by-id queries of {@link StudentDB} to answer them without rebuilding it;
+ * it does not follow later changes of the indexed collection.
+ */
+public final class StudentIdIndex {
+    private static final int DENSITY = 2;
+
+    private final Student[] students;
+    private final int min;
+    private final int[] keys;
+    // Row numbers plus one, zero marks an empty slot
+    private final int[] rows;
+    private final int mask;
+    private final int shift;
+
+    /**
+     * Builds index of students.
+     *
+     * @param students - students with distinct ids.
+     * @throws IllegalStateException if ids are not distinct.
+     */
+    public StudentIdIndex(Collection<Student> students) {
+        this(students.toArray(new Student[0]));
+    }
+
+    private StudentIdIndex(Student[] students) {
+        this(Arrays.stream(students).mapToInt(Student::getId).toArray(), students);
+    }
+
+    /**
+     * Builds index of rows of an id column. Only {@link #row(int)} is supported.
+     *
+     * @param ids - distinct ids.
+     * @throws IllegalStateException if ids are not distinct.
+     */
+    StudentIdIndex(int[] ids) {
+        this(ids, null);
+    }
+
+    private StudentIdIndex(int[] ids, Student[] students) {
+        this.students = students;
+        int min = Integer.MAX_VALUE;
+        int max = Integer.MIN_VALUE;
+        for (int id : ids) {
+            min = Math.min(min, id);
+            max = Math.max(max, id);
+        }
+        long range = (long) max - min + 1;
+        if (ids.length == 0 || range <= (long) DENSITY * ids.length) {
+            this.min = min;
+            keys = null;
+            mask = 0;
+            shift = 0;
+            rows = new int[ids.length == 0 ? 0 : (int) range];
+            for (int row = 0; row < ids.length; row++) {
+                int i = ids[row] - min;
+                checkDistinct(rows[i], ids[row]);
+                rows[i] = row + 1;
+            }
+        } else {
+            this.min = 0;
+            int capacity = Integer.highestOneBit(Math.max(DENSITY * ids.length - 1, 1)) << 1;
+            mask = capacity - 1;
+            shift = Integer.numberOfLeadingZeros(capacity) + 1;
+            keys = new int[capacity];
+            rows = new int[capacity];
+            for (int row = 0; row < ids.length; row++) {
+                int i = slot(ids[row]);
+                checkDistinct(rows[i], ids[row]);
+                keys[i] = ids[row];
+                rows[i] = row + 1;
+            }
+        }
+    }
+
+    private static void checkDistinct(int present, int id) {
+        if (present != 0) {
+            throw new IllegalStateException("Duplicate student id " + id);
+        }
+    }
+
+    private int slot(int id) {
+        // Fibonacci hashing: high bits of the product depend on all bits of the id
+        int i = (id * 0x9E3779B9) >>> shift;
+        while (rows[i] != 0 && keys[i] != id) {
+            i = (i + 1) & mask;
+        }
+        return i;
+    }
+
+    /**
+     * Returns row of the student with the given id.
+     *
+     * @param id - student id.
+     * @return position of the student in the indexed collection, or {@code -1} if there is none.
+     */
+    int row(int id) {
+        if (keys == null) {
+            long i = (long) id - min;
+            return i >= 0 && i < rows.length ? rows[(int) i] - 1 : -1;
+        }
+        return rows[slot(id)] - 1;
+    }
+
+    /**
+     * Returns student with the given id.
+     *
+     * @param id - student id.
+     * @return the student, or {@code null} if there is none.
+     */
+    public Student get(int id) {
+        int row = row(id);
+        return row < 0 ? null : students[row];
+    }
+}
@@ -0,0 +1,186 @@
+package info.kgeorgiy.ja.karpov.student;
+
+import info.kgeorgiy.java.advanced.student.Group;
+import info.kgeorgiy.java.advanced.student.GroupName;
+import info.kgeorgiy.java.advanced.student.Student;
+
+import java.util.*;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Precomputed answers to {@link info.kgeorgiy.java.advanced.student.AdvancedQuery} for a fixed collection of students.
+ * Students are sorted once by id and by name; hash indexes by first name, last name and group
+ * keep their lists in name order, so queries are answered by lookups.
+ * All returned collections are unmodifiable and shared between queries.
+ * The index is passed to queries through its {@link #rows() rows}.
+ * Ties are broken exactly as in {@link StudentDB}.
+ */
+final class StudentIndex {
+    private final List<Student> students;
+    private final List<Student> rows = new Rows();
+    final List<String> firstNames;
+    final List<String> lastNames;
+    final List<GroupName> groups;
+    final List<String> fullNames;
+    final SortedSet<String> distinctFirstNames;
+    final String maxStudentFirstName;
+    final List<Student> byId;
+    final List<Student> byName;
+    private final Map<String, List<Student>> byFirstName;
+    private final Map<String, List<Student>> byLastName;
+    private final Map<GroupName, List<Student>> byGroup;
+    private final Map<GroupName, Map<String, String>> namesByGroup;
+    final List<Group> groupsByName;
+    final List<Group> groupsById;
+    final GroupName largestGroup;
+    final GroupName largestGroupFirstName;
+    final String mostPopularName;
+    private volatile StudentIdIndex studentsById;
+
+    StudentIndex(Collection<Student> students) {
+        this.students = List.copyOf(students);
+        firstNames = map(Student::getFirstName);
+        lastNames = map(Student::getLastName);
+        groups = map(Student::getGroup);
+        fullNames = map(st -> st.getFirstName() + " " + st.getLastName());
+        distinctFirstNames = Collections.unmodifiableSortedSet(new TreeSet<>(firstNames));
+        maxStudentFirstName = this.students.stream()
+                .max(Comparator.naturalOrder())
+                .map(Student::getFirstName)
+                .orElse("");
+
+        byId = sorted(this.students, Comparator.naturalOrder());
+        byName = sorted(this.students, StudentDB.COMP_STUDENT_BY_NAME);
+        byFirstName = index(Student::getFirstName, new HashMap<>());
+        byLastName = index(Student::getLastName, new HashMap<>());
+        byGroup = index(Student::getGroup, new TreeMap<>());
+
+        Map<GroupName, Map<String, String>> names = new HashMap<>();
+        List<Group> groupsByName = new ArrayList<>();
+        List<Group> groupsById = new ArrayList<>();
+        Map<String, Integer> nameGroups = new HashMap<>();
+        GroupName largestGroup = null;
+        GroupName largestGroupFirstName = null;
+        int largestSize = -1;
+        int largestDistinct = -1;
+        for (Map.Entry<GroupName, List<Student>> entry : byGroup.entrySet()) {
+            GroupName name = entry.getKey();
+            List<Student> members = entry.getValue();
+            names.put(name, Collections.unmodifiableMap(members.stream()
+                    .collect(Collectors.toMap(Student::getLastName, Student::getFirstName,
+                            BinaryOperator.minBy(String::compareTo)))));
+            groupsByName.add(new Group(name, members));
+            groupsById.add(new Group(name, sorted(members, Comparator.comparingInt(Student::getId))));
+
+            // Groups are visited in ascending name order: larger names win size ties,
+            // smaller names win ties of distinct first names
+            if (members.size() >= largestSize) {
+                largestSize = members.size();
+                largestGroup = name;
+            }
+            Set<String> distinct = new HashSet<>(map(members, Student::getFirstName));
+            if (distinct.size() > largestDistinct) {
+                largestDistinct = distinct.size();
+                largestGroupFirstName = name;
+            }
+            for (String firstName : distinct) {
+                nameGroups.merge(firstName, 1, Integer::sum);
+            }
+        }
+        namesByGroup = names;
+        this.groupsByName = Collections.unmodifiableList(groupsByName);
+        this.groupsById = Collections.unmodifiableList(groupsById);
+        this.largestGroup = largestGroup;
+        this.largestGroupFirstName = largestGroupFirstName;
+
+        String mostPopular = "";
+        int mostGroups = -1;
+        for (String name : distinctFirstNames) {
+            int count = nameGroups.getOrDefault(name, 0);
+            if (count > mostGroups) {
+                mostGroups = count;
+                mostPopular = name;
+            }
+        }
+        mostPopularName = mostPopular;
+    }
+
+    /**
+     * Returns unmodifiable list of the indexed students, recognized by {@link IndexedStudentDB}.
+     */
+    List<Student> rows() {
+        return rows;
+    }
+
+    /**
+     * Students of an index.
+     */
+    final class Rows extends AbstractList<Student> implements RandomAccess {
+        @Override
+        public Student get(int index) {
+            return students.get(index);
+        }
+
+        @Override
+        public int size() {
+            return students.size();
+        }
+
+        StudentIndex index() {
+            return StudentIndex.this;
+        }
+    }
+
+    private <T> List<T> map(Function<Student, T> func) {
+        return map(students, func);
+    }
+
+    private static <T> List<T> map(List<Student> students, Function<Student, T> func) {
+        return Collections.unmodifiableList(students.stream().map(func).collect(Collectors.toList()));
+    }
+
+    private static List<Student> sorted(List<Student> students, Comparator<Student> comp) {
+        List<Student> res = new ArrayList<>(students);
+        res.sort(comp);
+        return Collections.unmodifiableList(res);
+    }
+
+    private <K> Map<K, List<Student>> index(Function<Student, K> key, Map<K, List<Student>> res) {
+        for (Student student : byName) {
+            res.computeIfAbsent(key.apply(student), k -> new ArrayList<>()).add(student);
+        }
+        res.replaceAll((k, list) -> Collections.unmodifiableList(list));
+        return res;
+    }
+
+    List<Student> findByFirstName(String name) {
+        return byFirstName.getOrDefault(name, List.of());
+    }
+
+    List<Student> findByLastName(String name) {
+        return byLastName.getOrDefault(name, List.of());
+    }
+
+    List<Student> findByGroup(GroupName group) {
+        return byGroup.getOrDefault(group, List.of());
+    }
+
+    Map<String, String> namesByGroup(GroupName group) {
+        return namesByGroup.getOrDefault(group, Map.of());
+    }
+
+    /**
+     * Returns student with the given id.
+     * The id index is built on first use and, like {@link StudentDB}, fails on duplicate ids.
+     */
+    Student byId(int id) {
+        StudentIdIndex index = studentsById;
+        if (index == null) {
+            index = new StudentIdIndex(students);
+            studentsById = index;
+        }
+        return index.get(id);
+    }
+}
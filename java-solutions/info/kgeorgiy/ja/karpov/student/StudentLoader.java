@@ -0,0 +1,251 @@
+package info.kgeorgiy.ja.karpov.student;
+
+import info.kgeorgiy.java.advanced.student.GroupName;
+import info.kgeorgiy.java.advanced.student.Student;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Loads students from files into columnar snapshots.
+ * Files are read sequentially and names are dictionary-encoded while reading, so only the columns are kept in memory.
+ * Returned lists create students on access; {@link ColumnarStudentDB} answers queries over their columns
+ * and creates students only for the rows in the result.
+ *
+ * <p>CSV files hold lines {@code id,firstName,lastName,group} in UTF-8, without quoting; blank lines are skipped.
+ * Binary files hold a header, sorted name dictionaries and then the id, first name, last name and group columns.
+ */
+public final class StudentLoader {
+    private static final int MAGIC = 0x53545544;
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final GroupName[] GROUPS = GroupName.values();
+
+    private StudentLoader() {
+    }
+
+    /**
+     * Reads students from a CSV file.
+     *
+     * @param file - file to read.
+     * @return unmodifiable list of students in file order.
+     * @throws IOException if the file cannot be read or contains an invalid line.
+     */
+    public static List<Student> readCsv(Path file) throws IOException {
+        StudentColumns.Builder builder = new StudentColumns.Builder();
+        try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            int number = 0;
+            for (String line = in.readLine(); line != null; line = in.readLine()) {
+                number++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                String[] fields = line.split(",", -1);
+                try {
+                    if (fields.length != 4) {
+                        throw new IllegalArgumentException("expected 4 fields, found " + fields.length);
+                    }
+                    builder.add(Integer.parseInt(fields[0].trim()), fields[1], fields[2],
+                            GroupName.valueOf(fields[3].trim()));
+                } catch (IllegalArgumentException e) {
+                    throw new IOException("Invalid student at " + file + ":" + number + ": " + e.getMessage(), e);
+                }
+            }
+        }
+        return builder.build().rows();
+    }
+
+    /**
+     * Writes students to a CSV file readable by {@link #readCsv(Path)}.
+     *
+     * @param file     - file to write.
+     * @param students - students to write.
+     * @throws IOException              if the file cannot be written.
+     * @throws IllegalArgumentException if a name contains a comma or a line break.
+     */
+    public static void writeCsv(Path file, Collection<Student> students) throws IOException {
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for (Student student : students) {
+                out.write(student.getId() + "," + csvName(student.getFirstName()) + ","
+                        + csvName(student.getLastName()) + "," + student.getGroup().name());
+                out.newLine();
+            }
+        }
+    }
+
+    private static String csvName(String name) {
+        if (name.indexOf(',') >= 0 || name.indexOf('\n') >= 0 || name.indexOf('\r') >= 0) {
+            throw new IllegalArgumentException("Name cannot be written to CSV: " + name);
+        }
+        return name;
+    }
+
+    /**
+     * Reads students from a binary file.
+     * Columns are read in bulk through a fixed-size buffer.
+     *
+     * @param file - file to read.
+     * @return unmodifiable list of students in file order.
+     * @throws IOException if the file cannot be read or is not a valid student file.
+     */
+    public static List<Student> readBinary(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            Input in = new Input(channel);
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a student file: " + file);
+            }
+            int size = in.readSize(3 * Integer.BYTES + 1);
+            String[] firstNameDict = readDictionary(in);
+            String[] lastNameDict = readDictionary(in);
+            int[] ids = in.readInts(size);
+            int[] firstNames = in.readInts(size);
+            int[] lastNames = in.readInts(size);
+            int[] groups = in.readBytes(size);
+            if (!valid(firstNames, firstNameDict.length) || !valid(lastNames, lastNameDict.length)
+                    || !valid(groups, GROUPS.length)) {
+                throw new IOException("Invalid code in " + file);
+            }
+            return new StudentColumns(ids, firstNames, firstNameDict, lastNames, lastNameDict, groups).rows();
+        }
+    }
+
+    private static String[] readDictionary(Input in) throws IOException {
+        String[] dict = new String[in.readSize(Integer.BYTES)];
+        for (int i = 0; i < dict.length; i++) {
+            dict[i] = in.readString();
+            // Codes must compare as the names they encode
+            if (i > 0 && dict[i - 1].compareTo(dict[i]) >= 0) {
+                throw new IOException("Unsorted dictionary");
+            }
+        }
+        return dict;
+    }
+
+    private static boolean valid(int[] codes, int count) {
+        for (int code : codes) {
+            if (code < 0 || code >= count) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Writes students to a binary file readable by {@link #readBinary(Path)}.
+     *
+     * @param file     - file to write.
+     * @param students - students to write.
+     * @throws IOException if the file cannot be written.
+     */
+    public static void writeBinary(Path file, Collection<Student> students) throws IOException {
+        StudentColumns columns = students instanceof StudentColumns.Rows rows
+                ? rows.columns() : new StudentColumns(students);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file),
+                BUFFER_SIZE))) {
+            out.writeInt(MAGIC);
+            out.writeInt(columns.size());
+            writeDictionary(out, columns.firstNameDict);
+            writeDictionary(out, columns.lastNameDict);
+            for (int[] column : List.of(columns.ids, columns.firstNames, columns.lastNames)) {
+                for (int value : column) {
+                    out.writeInt(value);
+                }
+            }
+            for (int group : columns.groups) {
+                out.writeByte(group);
+            }
+        }
+    }
+
+    private static void writeDictionary(DataOutputStream out, String[] dict) throws IOException {
+        out.writeInt(dict.length);
+        for (String value : dict) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Big-endian reader over a channel through a buffer that grows only for long strings.
+     */
+    private static final class Input {
+        private final FileChannel channel;
+        private ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE).flip();
+
+        Input(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        private void require(int bytes) throws IOException {
+            if (buffer.remaining() >= bytes) {
+                return;
+            }
+            if (buffer.capacity() < bytes) {
+                buffer = ByteBuffer.allocate(bytes).put(buffer).flip();
+            }
+            buffer.compact();
+            while (buffer.position() < bytes) {
+                if (channel.read(buffer) < 0) {
+                    throw new EOFException("Unexpected end of student file");
+                }
+            }
+            buffer.flip();
+        }
+
+        int readInt() throws IOException {
+            require(Integer.BYTES);
+            return buffer.getInt();
+        }
+
+        /**
+         * Reads number of items, checking that they fit in the file.
+         *
+         * @param itemBytes - minimal size of an item.
+         */
+        int readSize(int itemBytes) throws IOException {
+            int size = readInt();
+            if (size < 0 || (long) size * itemBytes > channel.size()) {
+                throw new IOException("Invalid size " + size);
+            }
+            return size;
+        }
+
+        String readString() throws IOException {
+            int length = readSize(1);
+            require(length);
+            String res = new String(buffer.array(), buffer.position(), length, StandardCharsets.UTF_8);
+            buffer.position(buffer.position() + length);
+            return res;
+        }
+
+        int[] readInts(int size) throws IOException {
+            int[] res = new int[size];
+            for (int i = 0; i < size; ) {
+                require(Integer.BYTES);
+                int count = Math.min(size - i, buffer.remaining() / Integer.BYTES);
+                buffer.asIntBuffer().get(res, i, count);
+                buffer.position(buffer.position() + count * Integer.BYTES);
+                i += count;
+            }
+            return res;
+        }
+
+        int[] readBytes(int size) throws IOException {
+            int[] res = new int[size];
+            for (int i = 0; i < size; ) {
+                require(1);
+                for (int end = Math.min(size, i + buffer.remaining()); i < end; i++) {
+                    res[i] = buffer.get();
+                }
+            }
+            return res;
+        }
+    }
+}
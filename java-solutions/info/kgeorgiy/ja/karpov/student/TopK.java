@@ -0,0 +1,85 @@
+package info.kgeorgiy.ja.karpov.student;
+
+import java.util.*;
+import java.util.stream.Collector;
+
+/**
+ * Bounded max-heap of the least elements seen so far.
+ * Equal elements are ordered by encounter, so pages match the corresponding range of a stable sort.
+ *
+ * @param <T> - element type.
+ */
+final class TopK<T> {
+    private final Comparator<? super T> comp;
+    private final int capacity;
+    private final PriorityQueue<Entry<T>> heap;
+    // Number of elements seen, including rejected ones
+    private long seen;
+
+    private record Entry<T>(T value, long seq) {
+    }
+
+    private TopK(Comparator<? super T> comp, int capacity) {
+        this.comp = comp;
+        this.capacity = capacity;
+        heap = new PriorityQueue<>(TopK.<T>order(comp).reversed());
+    }
+
+    private static <T> Comparator<Entry<T>> order(Comparator<? super T> comp) {
+        return Comparator.<Entry<T>, T>comparing(Entry::value, comp).thenComparingLong(Entry::seq);
+    }
+
+    /**
+     * Returns collector of elements at positions {@code [offset, offset + limit)} of the stable sort of a stream.
+     * Keeps at most {@code offset + limit} elements.
+     *
+     * @param comp   - order of elements.
+     * @param offset - number of least elements to skip.
+     * @param limit  - maximal number of elements to return.
+     * @throws IllegalArgumentException if offset or limit is negative.
+     */
+    static <T> Collector<T, ?, List<T>> collector(Comparator<? super T> comp, int offset, int limit) {
+        if (offset < 0 || limit < 0) {
+            throw new IllegalArgumentException("Negative offset or limit: " + offset + ", " + limit);
+        }
+        int capacity = (int) Math.min((long) offset + limit, Integer.MAX_VALUE);
+        return Collector.of(() -> new TopK<T>(comp, capacity), TopK::add, TopK::merge, top -> top.page(offset));
+    }
+
+    private void add(T value) {
+        offer(value, seen++);
+    }
+
+    private void offer(T value, long seq) {
+        if (heap.size() < capacity) {
+            heap.add(new Entry<>(value, seq));
+        } else if (capacity > 0 && comp.compare(value, heap.element().value()) < 0) {
+            // Later elements lose ties, so only strictly lesser ones replace the greatest kept element
+            heap.remove();
+            heap.add(new Entry<>(value, seq));
+        }
+    }
+
+    /**
+     * Appends elements seen after the elements of this heap.
+     */
+    private TopK<T> merge(TopK<T> next) {
+        List<Entry<T>> entries = new ArrayList<>(next.heap);
+        entries.sort(TopK.<T>order(comp));
+        for (Entry<T> entry : entries) {
+            offer(entry.value(), seen + entry.seq());
+        }
+        seen += next.seen;
+        return this;
+    }
+
+    private List<T> page(int offset) {
+        List<Entry<T>> entries = new ArrayList<>(heap);
+        entries.sort(TopK.<T>order(comp));
+        List<T> res = new ArrayList<>(Math.max(entries.size() - offset, 0));
+        for (int i = offset; i < entries.size(); i++) {
+            res.add(entries.get(i).value());
+        }
+        return res;
+    }
+}
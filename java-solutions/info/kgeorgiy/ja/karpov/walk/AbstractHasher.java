@@ -0,0 +1,41 @@
+package info.kgeorgiy.ja.karpov.walk;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Base of array-oriented hashers: buffers without an accessible array are fed through a small scratch array.
+ */
+abstract class AbstractHasher implements HashAlgorithm.Hasher {
+    protected static final VarHandle LONG_LE =
+            MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle LONG_BE =
+            MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+    protected static final VarHandle INT_LE =
+            MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final int SCRATCH_SIZE = 1 << 13;
+    private byte[] scratch;
+
+    @Override
+    public void update(ByteBuffer buffer) {
+        if (buffer.hasArray()) {
+            update(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+            buffer.position(buffer.limit());
+            return;
+        }
+        if (scratch == null) {
+            scratch = new byte[SCRATCH_SIZE];
+        }
+        while (buffer.hasRemaining()) {
+            int length = Math.min(scratch.length, buffer.remaining());
+            buffer.get(scratch, 0, length);
+            update(scratch, 0, length);
+        }
+    }
+
+    protected static void putLong(byte[] out, int offset, long value) {
+        LONG_BE.set(out, offset, value);
+    }
+}
@@ -0,0 +1,229 @@
+package info.kgeorgiy.ja.karpov.walk;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Replacement of {@link Files#walkFileTree(Path, FileVisitor)} that lists directories concurrently.
+ * <p>
+ * Listings run on a fixed number of lister threads. Entering a directory and finishing a listing both start listings
+ * of subdirectories while a per-walk prefetch budget lasts; other directories are listed when the walk reaches them.
+ * A listing is dropped once its directory is visited, so memory is bounded by the budget and the current path.
+ * The visitor is still called on the walking thread, depth-first and in directory stream order,
+ * so the sequence of visitor calls is the same as with {@link Files#walkFileTree(Path, FileVisitor)}.
+ * Symbolic links are not followed.
+ */
+class ConcurrentTreeWalker implements AutoCloseable {
+    private static final int PREFETCH_PER_LISTER = 256;
+
+    private final ExecutorService listers;
+    private final int prefetch;
+
+    private record Child(Path path, BasicFileAttributes attrs, IOException error, Directory directory) {
+    }
+
+    private record Listing(List<Child> children, IOException openError, IOException readError) {
+    }
+
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+    }
+
+    private class Directory {
+        private final Path path;
+        private final Semaphore budget;
+        private CompletableFuture<Listing> listing;
+        private boolean prefetched;
+
+        Directory(Path path, Semaphore budget) {
+            this.path = path;
+            this.budget = budget;
+        }
+
+        synchronized CompletableFuture<Listing> start() {
+            if (listing == null) {
+                listing = CompletableFuture.supplyAsync(this::list, listers);
+            }
+            return listing;
+        }
+
+        synchronized void prefetch() {
+            if (listing == null && budget.tryAcquire()) {
+                prefetched = true;
+                start();
+            }
+        }
+
+        /**
+         * Waits for the listing and drops it, so the subtree can be collected once visited.
+         */
+        Listing await() {
+            Listing res = join(start());
+            synchronized (this) {
+                listing = null;
+                if (prefetched) {
+                    prefetched = false;
+                    budget.release();
+                }
+            }
+            return res;
+        }
+
+        private Listing list() {
+            List<Child> children = new ArrayList<>();
+            DirectoryStream<Path> stream;
+            try {
+                stream = Files.newDirectoryStream(path);
+            } catch (IOException e) {
+                return new Listing(children, e, null);
+            }
+
+            IOException readError = null;
+            try (stream) {
+                for (Path child : stream) {
+                    try {
+                        BasicFileAttributes attrs = Files.readAttributes(child, BasicFileAttributes.class,
+                                LinkOption.NOFOLLOW_LINKS);
+                        children.add(new Child(child, attrs, null,
+                                attrs.isDirectory() ? new Directory(child, budget) : null));
+                    } catch (IOException e) {
+                        children.add(new Child(child, null, e, null));
+                    }
+                }
+            } catch (DirectoryIteratorException e) {
+                readError = e.getCause();
+            } catch (IOException e) {
+                readError = e;
+            }
+
+            for (Child child : children) {
+                if (child.directory() != null) {
+                    child.directory().prefetch();
+                }
+            }
+            return new Listing(children, null, readError);
+        }
+    }
+
+    private record Start(Path root, BasicFileAttributes attrs, Directory directory, IOException error) {
+    }
+
+    /**
+     * A walk started ahead of time: the root attributes and listing are read in background.
+     */
+    class Root {
+        private final CompletableFuture<Start> start;
+
+        private Root(String path) {
+            Semaphore budget = new Semaphore(prefetch);
+            this.start = CompletableFuture.supplyAsync(() -> {
+                Path root = Path.of(path);
+                try {
+                    BasicFileAttributes attrs = Files.readAttributes(root, BasicFileAttributes.class,
+                            LinkOption.NOFOLLOW_LINKS);
+                    Directory directory = null;
+                    if (attrs.isDirectory()) {
+                        directory = new Directory(root, budget);
+                        directory.start();
+                    }
+                    return new Start(root, attrs, directory, null);
+                } catch (IOException e) {
+                    return new Start(root, null, null, e);
+                }
+            }, listers);
+        }
+
+        /**
+         * Walks the tree, calling the visitor on the current thread.
+         *
+         * @param visitor - visitor to call.
+         * @throws IOException          if the visitor throws it.
+         * @throws InvalidPathException if the root is not a valid path.
+         */
+        void walk(FileVisitor<? super Path> visitor) throws IOException {
+            Start start = join(this.start);
+            if (start.error() != null) {
+                visitor.visitFileFailed(start.root(), start.error());
+            } else if (start.directory() != null) {
+                visitDirectory(start.directory(), start.attrs(), visitor);
+            } else {
+                visitor.visitFile(start.root(), start.attrs());
+            }
+        }
+    }
+
+    /**
+     * Creates walker.
+     *
+     * @param listers - maximum number of directories listed concurrently.
+     */
+    ConcurrentTreeWalker(int listers) {
+        this.listers = Executors.newFixedThreadPool(listers, runnable -> {
+            Thread thread = new Thread(runnable);
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.prefetch = listers * PREFETCH_PER_LISTER;
+    }
+
+    /**
+     * Starts reading the root of a walk in background.
+     *
+     * @param path - root path.
+     * @return started walk.
+     */
+    Root start(String path) {
+        return new Root(path);
+    }
+
+    private FileVisitResult visitDirectory(Directory directory, BasicFileAttributes attrs,
+                                           FileVisitor<? super Path> visitor) throws IOException {
+        Listing listing = directory.await();
+        if (listing.openError() != null) {
+            return visitor.visitFileFailed(directory.path, listing.openError());
+        }
+
+        FileVisitResult result = visitor.preVisitDirectory(directory.path, attrs);
+        if (result != FileVisitResult.CONTINUE) {
+            return result == FileVisitResult.SKIP_SUBTREE ? FileVisitResult.CONTINUE : result;
+        }
+        for (Child child : listing.children()) {
+            if (child.directory() != null) {
+                child.directory().prefetch();
+            }
+        }
+        for (Child child : listing.children()) {
+            if (child.error() != null) {
+                result = visitor.visitFileFailed(child.path(), child.error());
+            } else if (child.directory() != null) {
+                result = visitDirectory(child.directory(), child.attrs(), visitor);
+            } else {
+                result = visitor.visitFile(child.path(), child.attrs());
+            }
+            if (result == FileVisitResult.TERMINATE) {
+                return result;
+            }
+            if (result == FileVisitResult.SKIP_SIBLINGS) {
+                break;
+            }
+        }
+        return visitor.postVisitDirectory(directory.path, listing.readError());
+    }
+
+    @Override
+    public void close() {
+        listers.shutdownNow();
+    }
+}
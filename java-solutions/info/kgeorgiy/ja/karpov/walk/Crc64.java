@@ -0,0 +1,72 @@
+package info.kgeorgiy.ja.karpov.walk;
+
+/**
+ * CRC-64/XZ (ECMA-182 polynomial, reflected), computed eight bytes at a time with slicing-by-8 tables.
+ * Not cryptographic: intended for fast change detection and deduplication scans.
+ */
+public class Crc64 implements HashAlgorithm {
+    private static final long POLY = 0xC96C5795D7870F42L;
+    private static final long[] TABLE = new long[8 * 256];
+
+    static {
+        for (int i = 0; i < 256; i++) {
+            long crc = i;
+            for (int j = 0; j < 8; j++) {
+                crc = (crc & 1) != 0 ? (crc >>> 1) ^ POLY : crc >>> 1;
+            }
+            TABLE[i] = crc;
+        }
+        for (int i = 256; i < TABLE.length; i++) {
+            TABLE[i] = (TABLE[i - 256] >>> 8) ^ TABLE[(int) (TABLE[i - 256] & 0xff)];
+        }
+    }
+
+    @Override
+    public String name() {
+        return "CRC64";
+    }
+
+    @Override
+    public int digestLength() {
+        return Long.BYTES;
+    }
+
+    @Override
+    public Hasher newHasher() {
+        return new AbstractHasher() {
+            private long crc = -1;
+
+            @Override
+            public void update(byte[] bytes, int offset, int length) {
+                long c = crc;
+                int end = offset + length;
+                for (; offset + 8 <= end; offset += 8) {
+                    c ^= (long) LONG_LE.get(bytes, offset);
+                    c = TABLE[7 * 256 + (int) (c & 0xff)]
+                            ^ TABLE[6 * 256 + (int) ((c >>> 8) & 0xff)]
+                            ^ TABLE[5 * 256 + (int) ((c >>> 16) & 0xff)]
+                            ^ TABLE[4 * 256 + (int) ((c >>> 24) & 0xff)]
+                            ^ TABLE[3 * 256 + (int) ((c >>> 32) & 0xff)]
+                            ^ TABLE[2 * 256 + (int) ((c >>> 40) & 0xff)]
+                            ^ TABLE[256 + (int) ((c >>> 48) & 0xff)]
+                            ^ TABLE[(int) (c >>> 56)];
+                }
+                for (; offset < end; offset++) {
+                    c = (c >>> 8) ^ TABLE[(int) ((c ^ bytes[offset]) & 0xff)];
+                }
+                crc = c;
+            }
+
+            @Override
+            public void digest(byte[] out, int offset) {
+                putLong(out, offset, ~crc);
+                reset();
+            }
+
+            @Override
+            public void reset() {
+                crc = -1;
+            }
+        };
+    }
+}
@@ -1,53 +1,257 @@
 package info.kgeorgiy.ja.karpov.walk;
 
-import java.io.*;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
+/**
+ * Hashes files with a {@link HashAlgorithm}, SHA-256 by default.
+ * Instances are not thread-safe: every hashing thread should own its own hasher.
+ * Files are read through a {@link FileChannel}: small files into a reused direct buffer,
+ * files of at least {@link #MAPPED_THRESHOLD} bytes through memory-mapped windows.
+ * With a {@link TreeHash}, chunks of files larger than one chunk are hashed in parallel on the common fork-join pool.
+ */
 public class FileHasher {
-    public static final String nullHash = "0".repeat(64);
+    public static final long MAPPED_THRESHOLD = 1L << 24;
+    private static final long MAPPED_WINDOW = 1L << 26;
     private static final int bufferSize = 1 << 16;
-    private static MessageDigest digest;
+    private final HashAlgorithm algorithm;
+    private final HashCache cache;
+    private final WalkMetrics metrics;
+    private final HashAlgorithm.Hasher digest;
+    private final String nullHash;
+    private ByteBuffer direct;
+    private ByteBuffer heap;
 
-    public static void setDigest() {
-        try {
-            FileHasher.digest = MessageDigest.getInstance("SHA-256");
-        } catch (NoSuchAlgorithmException ignored) {
+    /**
+     * Strategy of reading file contents into the digest.
+     */
+    enum ReadMode {
+        /** Reads into a heap array, copying every byte from the kernel to the heap. */
+        HEAP,
+        /** Reads into a reused direct buffer passed to the digest as is. */
+        DIRECT,
+        /** Maps the file in windows of {@link #MAPPED_WINDOW} bytes. */
+        MAPPED
+    }
+
+    public FileHasher() {
+        this(HashAlgorithms.SHA_256);
+    }
+
+    public FileHasher(HashAlgorithm algorithm) {
+        this(algorithm, null, new WalkMetrics());
+    }
+
+    /**
+     * Creates hasher reporting to the given metrics.
+     *
+     * @param algorithm - hash algorithm.
+     * @param cache     - cache consulted by {@link #digest(Path, BasicFileAttributes, byte[])}, may be {@code null}.
+     * @param metrics   - metrics to report processed files and errors to.
+     */
+    FileHasher(HashAlgorithm algorithm, HashCache cache, WalkMetrics metrics) {
+        this.algorithm = algorithm;
+        this.cache = cache;
+        this.metrics = metrics;
+        this.digest = algorithm.newHasher();
+        this.nullHash = nullHash(algorithm);
+    }
+
+    /**
+     * Returns the hash written for files that cannot be read: zeros of the algorithm digest width.
+     *
+     * @param algorithm - hash algorithm.
+     * @return output prefix of the algorithm followed by hex zeros.
+     */
+    public static String nullHash(HashAlgorithm algorithm) {
+        return algorithm.outputPrefix() + "0".repeat(2 * algorithm.digestLength());
+    }
+
+    public String nullHash() {
+        return nullHash;
+    }
+
+    public HashAlgorithm algorithm() {
+        return algorithm;
+    }
+
+    public String hash(Path file) {
+        return hash(file, null);
+    }
+
+    /**
+     * Hashes a file with the given read strategy.
+     *
+     * @param file - file to hash.
+     * @param mode - read strategy, or {@code null} to choose one by file size.
+     * @return hex hash of the file, or {@link #nullHash()} on error.
+     */
+    String hash(Path file, ReadMode mode) {
+        byte[] hash = new byte[algorithm.digestLength()];
+        return compute(file, mode, hash) ? algorithm.outputPrefix() + toHex(hash) : nullHash;
+    }
+
+    /**
+     * Computes a raw digest of a file, choosing the read strategy by file size.
+     *
+     * @param file - file to hash.
+     * @param out  - array of at least {@link HashAlgorithm#digestLength()} bytes to write the digest to.
+     * @return whether the file was hashed successfully.
+     */
+    public boolean digest(Path file, byte[] out) {
+        return compute(file, null, out);
+    }
+
+    /**
+     * Computes a raw digest of a walked file through the cache, recording it in the metrics.
+     * Only files actually hashed count towards hashed bytes and hashing latency.
+     *
+     * @param file  - file to hash.
+     * @param attrs - attributes of the file.
+     * @param out   - array of at least {@link HashAlgorithm#digestLength()} bytes to write the digest to.
+     * @return whether the digest was found or computed successfully.
+     */
+    boolean digest(Path file, BasicFileAttributes attrs, byte[] out) {
+        if (cache != null && cache.find(file, attrs, out)) {
+            metrics.cacheHit();
+            return true;
         }
+        long start = System.nanoTime();
+        boolean hashed = digest(file, out);
+        metrics.file(hashed ? attrs.size() : 0, System.nanoTime() - start);
+        if (hashed && cache != null) {
+            cache.put(file, attrs, out);
+        }
+        return hashed;
     }
 
-    public static String hash(Path file) {
-        byte[] hash;
-        try (FileInputStream in = new FileInputStream(file.toString())) {
-            byte[] bytes = new byte[bufferSize];
-            int res;
+    private boolean compute(Path file, ReadMode mode, byte[] out) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
             try {
-                while ((res = in.read(bytes)) != -1) {
-                    digest.update(bytes, 0, res);
+                if (algorithm instanceof TreeHash tree && channel.size() > tree.chunkSize()) {
+                    treeDigest(channel, tree, out);
+                    return true;
+                }
+                if (mode == null) {
+                    mode = channel.size() >= MAPPED_THRESHOLD ? ReadMode.MAPPED : ReadMode.DIRECT;
+                }
+                switch (mode) {
+                    case HEAP -> updateHeap(channel);
+                    case DIRECT -> updateDirect(channel);
+                    case MAPPED -> updateMapped(channel);
                 }
             } catch (IOException e) {
-                System.out.println("Error reading from file: " + file + e.getMessage());
-                return nullHash;
+                metrics.error(WalkMetrics.ErrorKind.FILE_READ, "Error reading from file: " + file + e.getMessage());
+                digest.reset();
+                return false;
             }
         } catch (SecurityException e) {
-            System.out.println("No rights for file: " + file + e.getMessage());
-            return nullHash;
+            metrics.error(WalkMetrics.ErrorKind.FILE_ACCESS, "No rights for file: " + file + e.getMessage());
+            return false;
         } catch (IOException e) {
-            System.out.println("Error opening file: " + file + e.getMessage());
-            return nullHash;
+            metrics.error(WalkMetrics.ErrorKind.FILE_OPEN, "Error opening file: " + file + e.getMessage());
+            return false;
+        }
+        digest.digest(out, 0);
+        return true;
+    }
+
+    public static String toHex(byte[] hash) {
+        byte[] hex = new byte[2 * hash.length];
+        HashWriter.encodeHex(hash, hash.length, hex, 0);
+        return new String(hex, StandardCharsets.ISO_8859_1);
+    }
+
+    private static class Subtree extends RecursiveTask<byte[]> {
+        private static final long serialVersionUID = 1L;
+
+        private final FileChannel channel;
+        private final TreeHash tree;
+        private final long size;
+        private final long from;
+        private final long to;
+
+        Subtree(FileChannel channel, TreeHash tree, long size, long from, long to) {
+            this.channel = channel;
+            this.tree = tree;
+            this.size = size;
+            this.from = from;
+            this.to = to;
         }
 
-        hash = digest.digest();
-        StringBuilder hexString = new StringBuilder(2 * hash.length);
-        for (byte b : hash) {
-            String hex = Integer.toHexString(0xff & b);
-            if (hex.length() == 1) {
-                hexString.append('0');
+        @Override
+        protected byte[] compute() {
+            if (to - from == 1) {
+                HashAlgorithm.Hasher hasher = tree.newLeaf();
+                long position = from * tree.chunkSize();
+                try {
+                    hasher.update(channel.map(FileChannel.MapMode.READ_ONLY, position,
+                            Math.min(tree.chunkSize(), size - position)));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                byte[] res = new byte[tree.digestLength()];
+                hasher.digest(res, 0);
+                return res;
             }
-            hexString.append(hex);
+
+            long split = from + Long.highestOneBit(to - from - 1);
+            Subtree left = new Subtree(channel, tree, size, from, split);
+            left.fork();
+            byte[] right = new Subtree(channel, tree, size, split, to).compute();
+            return tree.node(tree.leaf().newHasher(), left.join(), right);
+        }
+    }
+
+    private void treeDigest(FileChannel channel, TreeHash tree, byte[] out) throws IOException {
+        long size = channel.size();
+        long leaves = (size + tree.chunkSize() - 1) / tree.chunkSize();
+        try {
+            byte[] res = ForkJoinPool.commonPool().invoke(new Subtree(channel, tree, size, 0, leaves));
+            System.arraycopy(res, 0, out, 0, res.length);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private void updateHeap(FileChannel channel) throws IOException {
+        if (heap == null) {
+            heap = ByteBuffer.allocate(bufferSize);
+        }
+        heap.clear();
+        while (channel.read(heap) != -1) {
+            digest.update(heap.array(), 0, heap.position());
+            heap.clear();
+        }
+    }
+
+    private void updateDirect(FileChannel channel) throws IOException {
+        if (direct == null) {
+            direct = ByteBuffer.allocateDirect(bufferSize);
+        }
+        direct.clear();
+        while (channel.read(direct) != -1) {
+            direct.flip();
+            digest.update(direct);
+            direct.clear();
+        }
+    }
+
+    private void updateMapped(FileChannel channel) throws IOException {
+        long size = channel.size();
+        for (long position = 0; position < size; position += MAPPED_WINDOW) {
+            MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position,
+                    Math.min(MAPPED_WINDOW, size - position));
+            digest.update(window);
         }
-        digest.reset();
-        return hexString.toString();
     }
 }
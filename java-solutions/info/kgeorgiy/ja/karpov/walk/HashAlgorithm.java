@@ -0,0 +1,75 @@
+package info.kgeorgiy.ja.karpov.walk;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Hash algorithm usable by {@link Walk}. Additional algorithms are discovered with {@link java.util.ServiceLoader}.
+ *
+ * @see HashAlgorithms#forName(String)
+ */
+public interface HashAlgorithm {
+    /**
+     * Returns name of the algorithm, as accepted by the {@code -algorithm} option.
+     *
+     * @return algorithm name.
+     */
+    String name();
+
+    /**
+     * Returns length of digests produced by the algorithm.
+     *
+     * @return digest length in bytes.
+     */
+    int digestLength();
+
+    /**
+     * Creates a new hasher. Hashers are not thread-safe.
+     *
+     * @return new hasher in the initial state.
+     */
+    Hasher newHasher();
+
+    /**
+     * Returns text written before every hash of this algorithm, identifying the hashing mode.
+     *
+     * @return output prefix, empty by default.
+     */
+    default String outputPrefix() {
+        return "";
+    }
+
+    /**
+     * Incremental hash computation.
+     */
+    interface Hasher {
+        /**
+         * Feeds bytes to the hasher.
+         *
+         * @param bytes  - array to read from.
+         * @param offset - first byte to read.
+         * @param length - number of bytes to read.
+         */
+        void update(byte[] bytes, int offset, int length);
+
+        /**
+         * Feeds remaining bytes of a buffer to the hasher, advancing its position to the limit.
+         *
+         * @param buffer - buffer to read from.
+         */
+        void update(ByteBuffer buffer);
+
+        /**
+         * Completes the computation and resets the hasher.
+         * Writes {@link HashAlgorithm#digestLength()} bytes of the digest of all bytes fed since the last reset.
+         *
+         * @param out    - array to write the digest to.
+         * @param offset - position of the first digest byte.
+         */
+        void digest(byte[] out, int offset);
+
+        /**
+         * Discards all bytes fed since the last reset.
+         */
+        void reset();
+    }
+}
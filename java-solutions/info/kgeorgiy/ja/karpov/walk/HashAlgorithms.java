@@ -0,0 +1,117 @@
+package info.kgeorgiy.ja.karpov.walk;
+
+import java.nio.ByteBuffer;
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.ServiceLoader;
+
+/**
+ * Registry of hash algorithms available to {@link Walk}.
+ */
+public class HashAlgorithms {
+    public static final HashAlgorithm SHA_256 = messageDigest("SHA-256");
+    public static final HashAlgorithm SHA_1 = messageDigest("SHA-1");
+    public static final HashAlgorithm CRC64 = new Crc64();
+    public static final HashAlgorithm XXH64 = new XxHash64();
+
+    private static final List<HashAlgorithm> BUILTIN = List.of(SHA_256, SHA_1, CRC64, XXH64);
+
+    private HashAlgorithms() {
+    }
+
+    /**
+     * Returns built-in algorithms.
+     *
+     * @return list of built-in algorithms.
+     */
+    public static List<HashAlgorithm> builtin() {
+        return BUILTIN;
+    }
+
+    /**
+     * Finds an algorithm by case-insensitive name: built-in ones first,
+     * then {@link ServiceLoader} providers, then any {@link MessageDigest} algorithm.
+     *
+     * @param name - algorithm name.
+     * @return algorithm, or {@code null} if none is known under this name.
+     */
+    public static HashAlgorithm forName(String name) {
+        for (HashAlgorithm algorithm : BUILTIN) {
+            if (algorithm.name().equalsIgnoreCase(name)) {
+                return algorithm;
+            }
+        }
+        for (HashAlgorithm algorithm : ServiceLoader.load(HashAlgorithm.class)) {
+            if (algorithm.name().equalsIgnoreCase(name)) {
+                return algorithm;
+            }
+        }
+        try {
+            MessageDigest.getInstance(name);
+            return messageDigest(name);
+        } catch (NoSuchAlgorithmException e) {
+            return null;
+        }
+    }
+
+    private static MessageDigest getDigest(String name) {
+        try {
+            return MessageDigest.getInstance(name);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(name + " is not supported", e);
+        }
+    }
+
+    /**
+     * Adapts a {@link MessageDigest} algorithm.
+     *
+     * @param name - name of the algorithm as accepted by {@link MessageDigest#getInstance(String)}.
+     * @return the adapted algorithm.
+     */
+    public static HashAlgorithm messageDigest(String name) {
+        int length = getDigest(name).getDigestLength();
+        return new HashAlgorithm() {
+            @Override
+            public String name() {
+                return name;
+            }
+
+            @Override
+            public int digestLength() {
+                return length;
+            }
+
+            @Override
+            public Hasher newHasher() {
+                MessageDigest digest = getDigest(name);
+                return new Hasher() {
+                    @Override
+                    public void update(byte[] bytes, int offset, int length) {
+                        digest.update(bytes, offset, length);
+                    }
+
+                    @Override
+                    public void update(ByteBuffer buffer) {
+                        digest.update(buffer);
+                    }
+
+                    @Override
+                    public void digest(byte[] out, int offset) {
+                        try {
+                            digest.digest(out, offset, length);
+                        } catch (DigestException e) {
+                            throw new IllegalArgumentException("Cannot write digest: " + e.getMessage(), e);
+                        }
+                    }
+
+                    @Override
+                    public void reset() {
+                        digest.reset();
+                    }
+                };
+            }
+        };
+    }
+}
@@ -0,0 +1,108 @@
+package info.kgeorgiy.ja.karpov.walk;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares {@link FileHasher} read strategies and hash algorithms on files of different sizes.
+ * Usage: {@code HashBenchmark [size in bytes...]}.
+ * Results depend on the page cache: every file is read once before measuring, so the numbers are warm-cache ones.
+ */
+public class HashBenchmark {
+    private static final long[] DEFAULT_SIZES = {1L << 12, 1L << 16, 1L << 20, 1L << 24, 1L << 28};
+    private static final long BYTES_PER_RUN = 1L << 28;
+    private static final int WARMUP_RUNS = 1;
+    private static final int RUNS = 3;
+
+    private static Path createFile(long size) throws IOException {
+        Path file = Files.createTempFile("hash-benchmark", ".bin");
+        file.toFile().deleteOnExit();
+        byte[] block = new byte[1 << 16];
+        new Random(size).nextBytes(block);
+        try (OutputStream out = Files.newOutputStream(file)) {
+            for (long written = 0; written < size; written += block.length) {
+                out.write(block, 0, (int) Math.min(block.length, size - written));
+            }
+        }
+        return file;
+    }
+
+    private static double measure(FileHasher hasher, FileHasher.ReadMode mode, Path file, long size) {
+        long repeats = Math.max(1, BYTES_PER_RUN / Math.max(size, 1));
+        String hash = "";
+        long start = System.nanoTime();
+        for (long i = 0; i < repeats; i++) {
+            hash = hasher.hash(file, mode);
+        }
+        long time = System.nanoTime() - start;
+        if (hash.equals(hasher.nullHash())) {
+            throw new IllegalStateException("Cannot hash " + file);
+        }
+        return (double) repeats * size / (1 << 20) / (time / 1e9);
+    }
+
+    private static double best(FileHasher hasher, FileHasher.ReadMode mode, Path file, long size) {
+        for (int i = 0; i < WARMUP_RUNS; i++) {
+            measure(hasher, mode, file, size);
+        }
+        double best = 0;
+        for (int i = 0; i < RUNS; i++) {
+            best = Math.max(best, measure(hasher, mode, file, size));
+        }
+        return best;
+    }
+
+    private static void header(String title, List<String> columns) {
+        System.out.println(title + " (MiB/s)");
+        System.out.printf("%14s", "size");
+        for (String column : columns) {
+            System.out.printf("%12s", column);
+        }
+        System.out.println();
+    }
+
+    public static void main(String[] args) throws IOException {
+        long[] sizes = DEFAULT_SIZES;
+        if (args != null && args.length > 0) {
+            sizes = new long[args.length];
+            for (int i = 0; i < args.length; i++) {
+                sizes[i] = Long.parseLong(args[i]);
+            }
+        }
+        List<Path> files = new ArrayList<>();
+        for (long size : sizes) {
+            files.add(createFile(size));
+        }
+
+        FileHasher sha256 = new FileHasher();
+        header("Read strategies, " + sha256.algorithm().name(),
+                Arrays.stream(FileHasher.ReadMode.values()).map(Enum::name).toList());
+        for (int i = 0; i < sizes.length; i++) {
+            System.out.printf("%14d", sizes[i]);
+            for (FileHasher.ReadMode mode : FileHasher.ReadMode.values()) {
+                System.out.printf("%12.1f", best(sha256, mode, files.get(i), sizes[i]));
+            }
+            System.out.println();
+        }
+
+        System.out.println();
+        header("Algorithms", HashAlgorithms.builtin().stream().map(HashAlgorithm::name).toList());
+        for (int i = 0; i < sizes.length; i++) {
+            System.out.printf("%14d", sizes[i]);
+            for (HashAlgorithm algorithm : HashAlgorithms.builtin()) {
+                System.out.printf("%12.1f", best(new FileHasher(algorithm), null, files.get(i), sizes[i]));
+            }
+            System.out.println();
+        }
+
+        for (Path file : files) {
+            Files.delete(file);
+        }
+    }
+}
@@ -0,0 +1,258 @@
+package info.kgeorgiy.ja.karpov.walk;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Persistent file hash cache keyed by path, size, modification time and file key.
+ * <p>
+ * The cache file is memory-mapped on load and searched in place, so loading does not depend on the number of entries.
+ * Cache files larger than 2 GiB are ignored.
+ * Layout (big-endian):
+ * <pre>
+ * header:  int magic, int version, int digest length, int record count, long algorithm name hash, long strings offset
+ * records: long path hash, long size, long mtime, long strings offset, int path length, int file key length,
+ *          digest bytes
+ * strings: UTF-8 path followed by the UTF-8 string form of the file key, for each record
+ * </pre>
+ * Records are sorted by path hash. Only files visited during the current run are written back on {@link #save}.
+ * Records pointing outside the file are treated as missing. Lookups are thread-safe.
+ */
+class HashCache {
+    private static final int MAGIC = 0x57414c4b;
+    private static final int VERSION = 3;
+    private static final int HEADER_SIZE = 4 * Integer.BYTES + 2 * Long.BYTES;
+    private static final int RECORD_PREFIX = 4 * Long.BYTES + 2 * Integer.BYTES;
+
+    private final HashAlgorithm algorithm;
+    private final int digestLength;
+    private final int recordSize;
+    private final ByteBuffer table;
+    private final int count;
+    private final long stringsOffset;
+    private final Map<String, Entry> visited = new ConcurrentHashMap<>();
+
+    private record Entry(String path, long pathHash, long size, long mtime, String fileKey, byte[] digest) {
+    }
+
+    private HashCache(HashAlgorithm algorithm, ByteBuffer table, int count, long stringsOffset) {
+        this.algorithm = algorithm;
+        this.digestLength = algorithm.digestLength();
+        this.recordSize = RECORD_PREFIX + digestLength;
+        this.table = table;
+        this.count = count;
+        this.stringsOffset = stringsOffset;
+    }
+
+    /**
+     * Loads cache from a file. A missing, unreadable or incompatible file gives an empty cache.
+     *
+     * @param file      - cache file.
+     * @param algorithm - algorithm of digests the cache should hold.
+     * @return loaded cache.
+     */
+    static HashCache load(Path file, HashAlgorithm algorithm) {
+        if (Files.exists(file)) {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                if (channel.size() > Integer.MAX_VALUE) {
+                    System.out.println("Ignoring hash cache " + file + " larger than 2 GiB");
+                    return new HashCache(algorithm, null, 0, 0);
+                }
+                if (channel.size() >= HEADER_SIZE) {
+                    ByteBuffer table = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                    int count = table.getInt(12);
+                    long stringsOffset = table.getLong(24);
+                    if (table.getInt(0) == MAGIC && table.getInt(4) == VERSION
+                            && table.getInt(8) == algorithm.digestLength()
+                            && table.getLong(16) == pathHash(algorithm.name())
+                            && count >= 0
+                            && HEADER_SIZE + (long) count * (RECORD_PREFIX + algorithm.digestLength()) <= stringsOffset
+                            && stringsOffset <= table.limit()) {
+                        return new HashCache(algorithm, table, count, stringsOffset);
+                    }
+                }
+                System.out.println("Ignoring incompatible hash cache " + file);
+            } catch (SecurityException | IOException e) {
+                System.out.println("Cannot read hash cache " + file + ": " + e.getMessage());
+            }
+        }
+        return new HashCache(algorithm, null, 0, 0);
+    }
+
+    private static long pathHash(String path) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < path.length(); i++) {
+            hash = (hash ^ path.charAt(i)) * 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    private static long mtime(BasicFileAttributes attrs) {
+        return attrs.lastModifiedTime().to(TimeUnit.NANOSECONDS);
+    }
+
+    private static String fileKey(BasicFileAttributes attrs) {
+        return Objects.toString(attrs.fileKey(), "");
+    }
+
+    private int record(int i) {
+        return HEADER_SIZE + i * recordSize;
+    }
+
+    /**
+     * Returns position of the strings of a record, or {@code -1} if they do not fit in the strings section.
+     */
+    private int strings(int record) {
+        long offset = table.getLong(record + 3 * Long.BYTES);
+        int pathLength = table.getInt(record + 4 * Long.BYTES);
+        int keyLength = table.getInt(record + 4 * Long.BYTES + Integer.BYTES);
+        boolean valid = offset >= 0 && pathLength >= 0 && keyLength >= 0
+                && offset <= table.limit() - stringsOffset - pathLength - keyLength;
+        return valid ? (int) (stringsOffset + offset) : -1;
+    }
+
+    private boolean bytesEqual(int offset, byte[] bytes) {
+        for (int i = 0; i < bytes.length; i++) {
+            if (table.get(offset + i) != bytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean find(String path, long hash, long size, long mtime, String fileKey, byte[] out) {
+        int lo = 0;
+        int hi = count;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (table.getLong(record(mid)) < hash) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+
+        byte[] bytes = null;
+        for (int i = lo; i < count && table.getLong(record(i)) == hash; i++) {
+            int record = record(i);
+            if (bytes == null) {
+                bytes = path.getBytes(StandardCharsets.UTF_8);
+            }
+            int strings = strings(record);
+            if (strings >= 0 && table.getInt(record + 4 * Long.BYTES) == bytes.length && bytesEqual(strings, bytes)) {
+                byte[] key = fileKey.getBytes(StandardCharsets.UTF_8);
+                if (table.getLong(record + Long.BYTES) != size
+                        || table.getLong(record + 2 * Long.BYTES) != mtime
+                        || table.getInt(record + 4 * Long.BYTES + Integer.BYTES) != key.length
+                        || !bytesEqual(strings + bytes.length, key)) {
+                    return false;
+                }
+                table.get(record + RECORD_PREFIX, out, 0, digestLength);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Looks up the cached hash of a file and remembers it if the metadata of the file is unchanged.
+     *
+     * @param file  - file to look up.
+     * @param attrs - current attributes of the file.
+     * @param out   - array to write the digest to.
+     * @return whether the digest was found.
+     */
+    boolean find(Path file, BasicFileAttributes attrs, byte[] out) {
+        String path = file.toString();
+        long hash = pathHash(path);
+        long size = attrs.size();
+        long mtime = mtime(attrs);
+        String fileKey = fileKey(attrs);
+        if (table == null || !find(path, hash, size, mtime, fileKey, out)) {
+            return false;
+        }
+        visited.put(path, new Entry(path, hash, size, mtime, fileKey, Arrays.copyOf(out, digestLength)));
+        return true;
+    }
+
+    /**
+     * Remembers a freshly computed hash of a file.
+     *
+     * @param file   - hashed file.
+     * @param attrs  - attributes of the file.
+     * @param digest - digest of the file.
+     */
+    void put(Path file, BasicFileAttributes attrs, byte[] digest) {
+        String path = file.toString();
+        visited.put(path, new Entry(path, pathHash(path), attrs.size(), mtime(attrs), fileKey(attrs),
+                Arrays.copyOf(digest, digestLength)));
+    }
+
+    /**
+     * Writes entries of all files hashed through this cache.
+     * The file is replaced atomically, so an interrupted save keeps the previous cache.
+     *
+     * @param file - cache file.
+     */
+    void save(Path file) {
+        List<Entry> entries = new ArrayList<>(visited.values());
+        entries.sort(Comparator.comparingLong(Entry::pathHash));
+        List<byte[]> paths = new ArrayList<>(entries.size());
+        List<byte[]> keys = new ArrayList<>(entries.size());
+        for (Entry entry : entries) {
+            paths.add(entry.path().getBytes(StandardCharsets.UTF_8));
+            keys.add(entry.fileKey().getBytes(StandardCharsets.UTF_8));
+        }
+
+        try {
+            Path parent = file.toAbsolutePath().getParent();
+            Path tmp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+            try {
+                try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp),
+                        1 << 16))) {
+                    out.writeInt(MAGIC);
+                    out.writeInt(VERSION);
+                    out.writeInt(digestLength);
+                    out.writeInt(entries.size());
+                    out.writeLong(pathHash(algorithm.name()));
+                    out.writeLong(HEADER_SIZE + (long) entries.size() * recordSize);
+                    long offset = 0;
+                    for (int i = 0; i < entries.size(); i++) {
+                        Entry entry = entries.get(i);
+                        out.writeLong(entry.pathHash());
+                        out.writeLong(entry.size());
+                        out.writeLong(entry.mtime());
+                        out.writeLong(offset);
+                        out.writeInt(paths.get(i).length);
+                        out.writeInt(keys.get(i).length);
+                        out.write(entry.digest());
+                        offset += paths.get(i).length + keys.get(i).length;
+                    }
+                    for (int i = 0; i < entries.size(); i++) {
+                        out.write(paths.get(i));
+                        out.write(keys.get(i));
+                    }
+                }
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+        } catch (SecurityException | IOException e) {
+            System.out.println("Cannot write hash cache " + file + ": " + e.getMessage());
+        }
+    }
+}
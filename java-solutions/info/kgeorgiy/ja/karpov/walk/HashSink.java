@@ -0,0 +1,30 @@
+package info.kgeorgiy.ja.karpov.walk;
+
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * Receives walked files in output order and writes a hash line for each of them.
+ */
+interface HashSink extends AutoCloseable {
+    /**
+     * Schedules hashing of a regular file.
+     *
+     * @param file  - file to hash.
+     * @param attrs - attributes of the file.
+     */
+    void file(Path file, BasicFileAttributes attrs);
+
+    /**
+     * Writes a null hash line for a path that could not be walked.
+     *
+     * @param path - path as it should appear in the output.
+     */
+    void failed(String path);
+
+    /**
+     * Waits for all scheduled lines to be written.
+     */
+    @Override
+    void close();
+}
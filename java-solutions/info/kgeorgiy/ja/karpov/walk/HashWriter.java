@@ -0,0 +1,123 @@
+package info.kgeorgiy.ja.karpov.walk;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes {@code hash path} lines as UTF-8 into a large buffer flushed straight to a channel.
+ * Hex digits and path characters are encoded in place, so writing a line allocates nothing.
+ * Not thread-safe.
+ */
+class HashWriter implements Closeable {
+    private static final int BUFFER_SIZE = 1 << 20;
+    private static final byte[] HEX_DIGITS = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes(StandardCharsets.US_ASCII);
+    private static final int MAX_CHAR_BYTES = 4;
+
+    private final WritableByteChannel channel;
+    private final int digestLength;
+    private final byte[] prefix;
+    private final byte[] bytes = new byte[BUFFER_SIZE];
+    private final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+    private int position;
+
+    HashWriter(WritableByteChannel channel, HashAlgorithm algorithm) {
+        this.channel = channel;
+        this.digestLength = algorithm.digestLength();
+        this.prefix = algorithm.outputPrefix().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Writes lowercase hex digits of a digest.
+     *
+     * @param digest - digest bytes.
+     * @param length - number of digest bytes to encode.
+     * @param out    - array to write to.
+     * @param offset - position of the first hex digit.
+     */
+    static void encodeHex(byte[] digest, int length, byte[] out, int offset) {
+        for (int i = 0; i < length; i++) {
+            out[offset++] = HEX_DIGITS[(digest[i] >> 4) & 0xf];
+            out[offset++] = HEX_DIGITS[digest[i] & 0xf];
+        }
+    }
+
+    private void ensure(int length) throws IOException {
+        if (bytes.length - position < length) {
+            flush();
+        }
+    }
+
+    /**
+     * Writes a line.
+     *
+     * @param digest - digest of the file, or {@code null} to write a null hash.
+     * @param path   - path as it should appear in the output.
+     * @throws IOException if writing to the channel fails.
+     */
+    void write(byte[] digest, String path) throws IOException {
+        ensure(prefix.length + 2 * digestLength + 1);
+        System.arraycopy(prefix, 0, bytes, position, prefix.length);
+        position += prefix.length;
+        if (digest != null) {
+            encodeHex(digest, digestLength, bytes, position);
+            position += 2 * digestLength;
+        } else {
+            for (int i = 0; i < 2 * digestLength; i++) {
+                bytes[position++] = '0';
+            }
+        }
+        bytes[position++] = ' ';
+
+        for (int i = 0; i < path.length(); i++) {
+            ensure(MAX_CHAR_BYTES);
+            char c = path.charAt(i);
+            if (c < 0x80) {
+                bytes[position++] = (byte) c;
+            } else if (c < 0x800) {
+                bytes[position++] = (byte) (0xc0 | (c >> 6));
+                bytes[position++] = (byte) (0x80 | (c & 0x3f));
+            } else if (Character.isSurrogate(c)) {
+                if (Character.isHighSurrogate(c) && i + 1 < path.length()
+                        && Character.isLowSurrogate(path.charAt(i + 1))) {
+                    int cp = Character.toCodePoint(c, path.charAt(++i));
+                    bytes[position++] = (byte) (0xf0 | (cp >> 18));
+                    bytes[position++] = (byte) (0x80 | ((cp >> 12) & 0x3f));
+                    bytes[position++] = (byte) (0x80 | ((cp >> 6) & 0x3f));
+                    bytes[position++] = (byte) (0x80 | (cp & 0x3f));
+                } else {
+                    bytes[position++] = '?';
+                }
+            } else {
+                bytes[position++] = (byte) (0xe0 | (c >> 12));
+                bytes[position++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+                bytes[position++] = (byte) (0x80 | (c & 0x3f));
+            }
+        }
+
+        ensure(LINE_SEPARATOR.length);
+        for (byte b : LINE_SEPARATOR) {
+            bytes[position++] = b;
+        }
+    }
+
+    void flush() throws IOException {
+        buffer.clear().limit(position);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        position = 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+}
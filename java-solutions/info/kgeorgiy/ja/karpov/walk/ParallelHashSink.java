@@ -0,0 +1,167 @@
+package info.kgeorgiy.ja.karpov.walk;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Hashes files on a fixed number of worker threads, each owning its own {@link FileHasher}.
+ * Lines are written by a dedicated writer thread in the order the files were submitted.
+ * The number of files in flight is bounded, so a fast traversal blocks instead of buffering the whole tree.
+ * Entries, including their digest arrays, are recycled, so hashing a file allocates nothing per entry.
+ */
+class ParallelHashSink implements HashSink {
+    private static final int ENTRIES_PER_THREAD = 64;
+    private static final Entry END = new Entry(0);
+
+    private final HashWriter out;
+    private final HashAlgorithm algorithm;
+    private final HashCache cache;
+    private final WalkMetrics metrics;
+    private final BlockingQueue<Entry> free;
+    private final BlockingQueue<Entry> work;
+    private final BlockingQueue<Entry> order;
+    private final List<Thread> hashers = new ArrayList<>();
+    private final Thread writer;
+
+    private static class Entry {
+        Path file;
+        BasicFileAttributes attrs;
+        String path;
+        final byte[] digest;
+        boolean hashed;
+        boolean done;
+
+        Entry(int digestLength) {
+            digest = new byte[digestLength];
+        }
+    }
+
+    ParallelHashSink(HashWriter out, int threads, HashAlgorithm algorithm, HashCache cache, WalkMetrics metrics) {
+        this.out = out;
+        this.algorithm = algorithm;
+        this.cache = cache;
+        this.metrics = metrics;
+        int capacity = threads * ENTRIES_PER_THREAD;
+        free = new ArrayBlockingQueue<>(capacity);
+        work = new ArrayBlockingQueue<>(capacity + threads);
+        order = new ArrayBlockingQueue<>(capacity + 1);
+        for (int i = 0; i < capacity; i++) {
+            free.add(new Entry(algorithm.digestLength()));
+        }
+        metrics.queues(work::size, order::size);
+
+        for (int i = 0; i < threads; i++) {
+            hashers.add(new Thread(this::hash));
+            hashers.get(i).start();
+        }
+        writer = new Thread(this::write);
+        writer.start();
+    }
+
+    private void hash() {
+        FileHasher hasher = new FileHasher(algorithm, cache, metrics);
+        try {
+            Entry entry;
+            while ((entry = work.take()) != END) {
+                boolean hashed = false;
+                try {
+                    hashed = hasher.digest(entry.file, entry.attrs, entry.digest);
+                } catch (RuntimeException e) {
+                    metrics.error(WalkMetrics.ErrorKind.HASH, "Error hashing file: " + entry.file + " " + e);
+                    // The failed hasher may be left mid-digest
+                    hasher = new FileHasher(algorithm, cache, metrics);
+                } finally {
+                    // The writer waits for every entry, so it is completed even if hashing failed
+                    synchronized (entry) {
+                        entry.hashed = hashed;
+                        entry.done = true;
+                        entry.notify();
+                    }
+                }
+            }
+        } catch (InterruptedException ignored) {
+        }
+    }
+
+    private void write() {
+        try {
+            Entry entry;
+            while ((entry = order.take()) != END) {
+                synchronized (entry) {
+                    while (!entry.done) {
+                        entry.wait();
+                    }
+                }
+                try {
+                    out.write(entry.hashed ? entry.digest : null,
+                            entry.file != null ? entry.file.toString() : entry.path);
+                } catch (IOException e) {
+                    metrics.error(WalkMetrics.ErrorKind.OUTPUT, "Error writing to output file " + e.getMessage());
+                }
+                entry.file = null;
+                entry.attrs = null;
+                entry.path = null;
+                entry.hashed = false;
+                entry.done = false;
+                free.put(entry);
+            }
+        } catch (InterruptedException ignored) {
+        }
+    }
+
+    private Entry acquire() {
+        try {
+            return free.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.out.println("Walk interrupted");
+            return null;
+        }
+    }
+
+    @Override
+    public void file(Path file, BasicFileAttributes attrs) {
+        Entry entry = acquire();
+        if (entry != null) {
+            entry.file = file;
+            entry.attrs = attrs;
+            order.add(entry);
+            work.add(entry);
+        }
+    }
+
+    @Override
+    public void failed(String path) {
+        Entry entry = acquire();
+        if (entry != null) {
+            entry.path = path;
+            entry.done = true;
+            order.add(entry);
+        }
+    }
+
+    @Override
+    public void close() {
+        for (int i = 0; i < hashers.size(); i++) {
+            work.add(END);
+        }
+        order.add(END);
+        try {
+            for (Thread hasher : hashers) {
+                hasher.join();
+            }
+            writer.join();
+        } catch (InterruptedException e) {
+            for (Thread hasher : hashers) {
+                hasher.interrupt();
+            }
+            writer.interrupt();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
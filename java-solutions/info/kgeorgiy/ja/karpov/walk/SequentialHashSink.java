@@ -0,0 +1,44 @@
+package info.kgeorgiy.ja.karpov.walk;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * Hashes every file on the calling thread.
+ */
+class SequentialHashSink implements HashSink {
+    private final HashWriter out;
+    private final WalkMetrics metrics;
+    private final FileHasher hasher;
+    private final byte[] digest;
+
+    SequentialHashSink(HashWriter out, HashAlgorithm algorithm, HashCache cache, WalkMetrics metrics) {
+        this.out = out;
+        this.metrics = metrics;
+        this.hasher = new FileHasher(algorithm, cache, metrics);
+        this.digest = new byte[algorithm.digestLength()];
+    }
+
+    private void write(byte[] digest, String path) {
+        try {
+            out.write(digest, path);
+        } catch (IOException e) {
+            metrics.error(WalkMetrics.ErrorKind.OUTPUT, "Error writing to output file " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void file(Path file, BasicFileAttributes attrs) {
+        write(hasher.digest(file, attrs, digest) ? digest : null, file.toString());
+    }
+
+    @Override
+    public void failed(String path) {
+        write(null, path);
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,169 @@
+package info.kgeorgiy.ja.karpov.walk;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Merkle tree hash over fixed-size chunks of the input, as in RFC 6962:
+ * a leaf is {@code H(0x00 || chunk)}, an inner node is {@code H(0x01 || left || right)},
+ * and a range of {@code n > 1} leaves is split after the largest power of two less than {@code n}.
+ * An empty input is a single empty leaf.
+ * <p>
+ * {@link #newHasher()} computes the tree sequentially; {@link FileHasher} hashes chunks of large files in parallel
+ * and produces the same digest.
+ */
+public class TreeHash implements HashAlgorithm {
+    /** Largest supported chunk size, so that a chunk fits a single mapped buffer. */
+    public static final long MAX_CHUNK_SIZE = 1L << 30;
+    private static final byte[] LEAF = {0};
+    private static final byte[] NODE = {1};
+
+    private final HashAlgorithm leaf;
+    private final long chunkSize;
+
+    /**
+     * Creates tree hash.
+     *
+     * @param leaf      - algorithm used for leaves and inner nodes.
+     * @param chunkSize - size of a leaf chunk, from 1 to {@link #MAX_CHUNK_SIZE} bytes.
+     */
+    public TreeHash(HashAlgorithm leaf, long chunkSize) {
+        if (chunkSize <= 0 || chunkSize > MAX_CHUNK_SIZE) {
+            throw new IllegalArgumentException("Chunk size should be in [1, " + MAX_CHUNK_SIZE + "]: " + chunkSize);
+        }
+        this.leaf = leaf;
+        this.chunkSize = chunkSize;
+    }
+
+    @Override
+    public String name() {
+        return leaf.name() + "/tree-" + chunkSize;
+    }
+
+    @Override
+    public int digestLength() {
+        return leaf.digestLength();
+    }
+
+    @Override
+    public String outputPrefix() {
+        return "tree-" + chunkSize + ":";
+    }
+
+    public HashAlgorithm leaf() {
+        return leaf;
+    }
+
+    public long chunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * Starts a leaf.
+     *
+     * @return hasher fed with the leaf prefix.
+     */
+    Hasher newLeaf() {
+        Hasher hasher = leaf.newHasher();
+        hasher.update(LEAF, 0, LEAF.length);
+        return hasher;
+    }
+
+    /**
+     * Computes an inner node.
+     *
+     * @param hasher - hasher of the leaf algorithm in the initial state.
+     * @param left   - digest of the left subtree.
+     * @param right  - digest of the right subtree.
+     * @return digest of the node.
+     */
+    byte[] node(Hasher hasher, byte[] left, byte[] right) {
+        byte[] res = new byte[digestLength()];
+        hasher.update(NODE, 0, NODE.length);
+        hasher.update(left, 0, left.length);
+        hasher.update(right, 0, right.length);
+        hasher.digest(res, 0);
+        return res;
+    }
+
+    @Override
+    public Hasher newHasher() {
+        return new Hasher() {
+            private final Hasher hasher = leaf.newHasher();
+            private final Hasher nodes = leaf.newHasher();
+            private final Deque<byte[]> subtrees = new ArrayDeque<>();
+            private long leaves;
+            private long filled = -1;
+
+            private void startLeaf() {
+                if (filled < 0) {
+                    hasher.update(LEAF, 0, LEAF.length);
+                    filled = 0;
+                }
+            }
+
+            private void finishLeaf() {
+                byte[] digest = new byte[digestLength()];
+                hasher.digest(digest, 0);
+                filled = -1;
+                subtrees.push(digest);
+                for (long count = ++leaves; (count & 1) == 0; count >>= 1) {
+                    byte[] right = subtrees.pop();
+                    subtrees.push(node(nodes, subtrees.pop(), right));
+                }
+            }
+
+            @Override
+            public void update(byte[] bytes, int offset, int length) {
+                while (length > 0) {
+                    startLeaf();
+                    int take = (int) Math.min(length, chunkSize - filled);
+                    hasher.update(bytes, offset, take);
+                    offset += take;
+                    length -= take;
+                    if ((filled += take) == chunkSize) {
+                        finishLeaf();
+                    }
+                }
+            }
+
+            @Override
+            public void update(ByteBuffer buffer) {
+                int limit = buffer.limit();
+                while (buffer.hasRemaining()) {
+                    startLeaf();
+                    int take = (int) Math.min(buffer.remaining(), chunkSize - filled);
+                    buffer.limit(buffer.position() + take);
+                    hasher.update(buffer);
+                    buffer.limit(limit);
+                    if ((filled += take) == chunkSize) {
+                        finishLeaf();
+                    }
+                }
+            }
+
+            @Override
+            public void digest(byte[] out, int offset) {
+                if (filled >= 0 || leaves == 0) {
+                    startLeaf();
+                    finishLeaf();
+                }
+                byte[] res = subtrees.pop();
+                while (!subtrees.isEmpty()) {
+                    res = node(nodes, subtrees.pop(), res);
+                }
+                System.arraycopy(res, 0, out, offset, res.length);
+                reset();
+            }
+
+            @Override
+            public void reset() {
+                hasher.reset();
+                subtrees.clear();
+                leaves = 0;
+                filled = -1;
+            }
+        };
+    }
+}
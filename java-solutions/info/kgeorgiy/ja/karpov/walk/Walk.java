@@ -1,9 +1,12 @@
 package info.kgeorgiy.ja.karpov.walk;
 
 import java.io.*;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
 import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.Deque;
 
 
 public class Walk {
@@ -27,85 +30,118 @@ public class Walk {
         return res;
     }
 
-    public static void doTheWalk(String[] args, boolean isRecursive) {
-        if (args == null) {
-            System.out.println("Null arguments provided");
-            return;
+    private static final int ROOTS_AHEAD = 16;
+
+    private record Line(String path, ConcurrentTreeWalker.Root root) {
+    }
+
+    private static FileVisitor<Path> visitor(HashSink sink, boolean isRecursive) {
+        return new SimpleFileVisitor<>() {
+            boolean isDirectory = false;
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                sink.file(file, attrs);
+                isDirectory = true;
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path file, IOException exc) {
+                if (!isDirectory && !isRecursive) {
+                    sink.failed(file.toString());
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        };
+    }
+
+    private static void walkLine(Line line, HashSink sink, boolean isRecursive, WalkMetrics metrics) {
+        try {
+            if (line.root() != null) {
+                line.root().walk(visitor(sink, isRecursive));
+            } else {
+                Files.walkFileTree(Path.of(line.path()), visitor(sink, isRecursive));
+            }
+        } catch (InvalidPathException e) {
+            metrics.error(WalkMetrics.ErrorKind.INVALID_PATH, "Error trying to get file path " + e.getMessage());
+            sink.failed(line.path());
+        } catch (IOException e) {
+            metrics.error(WalkMetrics.ErrorKind.WALK, "Error trying to read from file " + e.getMessage());
+            sink.failed(line.path());
         }
-        if (args.length != 2) {
-            System.out.println("Wrong number of arguments provided");
-            return;
+    }
+
+    private static void walkLines(BufferedReader in, HashSink sink, boolean isRecursive,
+                                  ConcurrentTreeWalker walker, WalkMetrics metrics) {
+        Deque<Line> pending = new ArrayDeque<>();
+        String path;
+        try {
+            while ((path = in.readLine()) != null) {
+                pending.add(new Line(path, walker != null ? walker.start(path) : null));
+                if (walker == null || pending.size() > ROOTS_AHEAD) {
+                    walkLine(pending.remove(), sink, isRecursive, metrics);
+                }
+            }
+        } catch (IOException e) {
+            metrics.error(WalkMetrics.ErrorKind.INPUT, "Error reading from input file " + e.getMessage());
         }
-        if (args[0] == null) {
-            System.out.println("Input file provided is null");
-            return;
+        while (!pending.isEmpty()) {
+            walkLine(pending.remove(), sink, isRecursive, metrics);
         }
-        if (args[1] == null) {
-            System.out.println("Output file provided is null");
+    }
+
+    public static void doTheWalk(String[] args, boolean isRecursive) {
+        WalkOptions options = WalkOptions.parse(args);
+        if (options == null) {
             return;
         }
 
-        Path inPath = makePath(args[0], "input");
-        Path outPath = makePath(args[1], "output");
+        Path inPath = makePath(options.input, "input");
+        Path outPath = makePath(options.output, "output");
         if (inPath == null || outPath == null) {
             return;
         }
 
-        try (BufferedReader in = Files.newBufferedReader(inPath, StandardCharsets.UTF_8)) {
-            try (BufferedWriter out = Files.newBufferedWriter(outPath, StandardCharsets.UTF_8,
-                    StandardOpenOption.CREATE)) {
-                String path;
-                FileHasher.setDigest();
-                try {
-                    while ((path = in.readLine()) != null) {
-                        try {
-                            Files.walkFileTree(Path.of(path), new SimpleFileVisitor<>() {
-                                boolean isDirectory = false;
-                                @Override
-                                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
-                                    try {
-                                        out.write(FileHasher.hash(file) + " " + file + System.lineSeparator());
-                                        isDirectory = true;
-                                    } catch (IOException e) {
-                                        System.out.println("Error writing to output file " + e.getMessage());
-                                    }
-                                    return FileVisitResult.CONTINUE;
-                                }
+        Path cachePath = null;
+        HashCache cache = null;
+        if (options.cache != null) {
+            cachePath = makePath(options.cache, "cache");
+            if (cachePath == null) {
+                return;
+            }
+            cache = HashCache.load(cachePath, options.algorithm);
+        }
 
-                                @Override
-                                public FileVisitResult postVisitDirectory(Path file, IOException exc) {
-                                    if (!isDirectory && !isRecursive) {
-                                        try {
-                                            out.write(FileHasher.nullHash + " " + file + System.lineSeparator());
-                                        } catch (IOException e) {
-                                            System.out.println("Error writing to output file " + e.getMessage());
-                                        }
-                                    }
-                                    return FileVisitResult.CONTINUE;
-                                }
-                            });
-                        } catch (InvalidPathException e) {
-                            System.out.println("Error trying to get file path " + e.getMessage());
-                            out.write(FileHasher.nullHash + " " + path + System.lineSeparator());
-                        } catch (IOException e) {
-                            System.out.println("Error trying to read from file " + e.getMessage());
-                            out.write(FileHasher.nullHash + " " + path + System.lineSeparator());
-                        }
+        try (BufferedReader in = Files.newBufferedReader(inPath, StandardCharsets.UTF_8)) {
+            try (HashWriter out = new HashWriter(FileChannel.open(outPath, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE), options.algorithm)) {
+                try (WalkMetrics metrics = new WalkMetrics();
+                     HashSink sink = options.threads > 1
+                             ? new ParallelHashSink(out, options.threads, options.algorithm, cache, metrics)
+                             : new SequentialHashSink(out, options.algorithm, cache, metrics);
+                     ConcurrentTreeWalker walker = options.listers > 0
+                             ? new ConcurrentTreeWalker(options.listers)
+                             : null) {
+                    if (options.statsPeriod > 0) {
+                        metrics.start(options.statsPeriod);
                     }
-                } catch (IOException e) {
-                    System.out.println("Error reading from input file " + e.getMessage());
+                    walkLines(in, sink, isRecursive, walker, metrics);
+                }
+                if (cache != null) {
+                    cache.save(cachePath);
                 }
             } catch (SecurityException e) {
                 System.out.println("No rights for output " + e.getMessage());
             } catch (IOException e) {
-                System.out.println("Cannot access output file " + args[1] + ": " + e.getMessage());
+                System.out.println("Cannot access output file " + options.output + ": " + e.getMessage());
             }
         } catch (SecurityException e) {
             System.out.println("No rights for input " + e.getMessage());
         } catch (IOException e) {
-            System.out.println("Cannot access input file " + args[0] + ": " + e.getMessage());
+            System.out.println("Cannot access input file " + options.input + ": " + e.getMessage());
         }
     }
+
     public static void main(String[] args) {
         doTheWalk(args, false);
     }
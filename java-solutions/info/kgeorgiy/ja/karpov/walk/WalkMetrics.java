@@ -0,0 +1,272 @@
+package info.kgeorgiy.ja.karpov.walk;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+
+/**
+ * Progress and throughput counters of a walk. Updates are thread-safe and do not block.
+ * Counters are always collected; {@link #start(long)} prints them periodically to {@code System.err}
+ * and exposes them through JMX until {@link #close()}.
+ */
+public class WalkMetrics implements WalkMetricsMXBean, AutoCloseable {
+    public static final String OBJECT_NAME = "info.kgeorgiy.ja.karpov.walk:type=WalkMetrics";
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    /**
+     * Error categories, one per error path of the walk.
+     */
+    public enum ErrorKind {
+        /** A file cannot be opened. */
+        FILE_OPEN,
+        /** A file cannot be read after opening. */
+        FILE_READ,
+        /** Access to a file is denied by the security manager. */
+        FILE_ACCESS,
+        /** An input line is not a valid path. */
+        INVALID_PATH,
+        /** A path of an input line cannot be walked. */
+        WALK,
+        /** The input file cannot be read. */
+        INPUT,
+        /** Hashing a file failed unexpectedly. */
+        HASH,
+        /** The output file cannot be written. */
+        OUTPUT
+    }
+
+    private final long startTime = System.nanoTime();
+    private final LongAdder files = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+    private final LongAdder cacheHits = new LongAdder();
+    private final Map<ErrorKind, LongAdder> errors = new EnumMap<>(ErrorKind.class);
+    private final AtomicLongArray latencies = new AtomicLongArray((Long.SIZE - SUB_BUCKET_BITS + 1) * SUB_BUCKETS);
+    private volatile IntSupplier hashQueue = () -> 0;
+    private volatile IntSupplier writeQueue = () -> 0;
+    private ScheduledExecutorService reporter;
+    private ObjectName objectName;
+    private long lastFiles;
+    private long lastBytes;
+    private long lastTime = startTime;
+
+    public WalkMetrics() {
+        for (ErrorKind error : ErrorKind.values()) {
+            errors.put(error, new LongAdder());
+        }
+    }
+
+    /**
+     * Records a file processed by hashing.
+     *
+     * @param size  - size of the file, or zero if it was not hashed.
+     * @param nanos - time spent on the file.
+     */
+    void file(long size, long nanos) {
+        files.increment();
+        bytes.add(size);
+        latencies.incrementAndGet(bucket(Math.max(nanos, 0)));
+    }
+
+    /**
+     * Records a file whose hash was taken from the cache.
+     */
+    void cacheHit() {
+        files.increment();
+        cacheHits.increment();
+    }
+
+    /**
+     * Records and prints an error.
+     *
+     * @param error   - error category.
+     * @param message - message to print.
+     */
+    void error(ErrorKind error, String message) {
+        errors.get(error).increment();
+        System.out.println(message);
+    }
+
+    /**
+     * Sets sources of queue depths.
+     *
+     * @param hashQueue  - number of files waiting for a hasher.
+     * @param writeQueue - number of lines waiting for the writer.
+     */
+    void queues(IntSupplier hashQueue, IntSupplier writeQueue) {
+        this.hashQueue = hashQueue;
+        this.writeQueue = writeQueue;
+    }
+
+    private static int bucket(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    private static long bucketValue(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        return (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << (exponent - SUB_BUCKET_BITS);
+    }
+
+    private long percentile(double fraction) {
+        long total = 0;
+        for (int i = 0; i < latencies.length(); i++) {
+            total += latencies.get(i);
+        }
+        long rank = (long) Math.ceil(total * fraction);
+        long seen = 0;
+        for (int i = 0; i < latencies.length(); i++) {
+            seen += latencies.get(i);
+            if (seen >= rank && seen > 0) {
+                return bucketValue(i);
+            }
+        }
+        return 0;
+    }
+
+    private double elapsedSeconds() {
+        return Math.max(System.nanoTime() - startTime, 1) / 1e9;
+    }
+
+    @Override
+    public long getFiles() {
+        return files.sum();
+    }
+
+    @Override
+    public long getBytes() {
+        return bytes.sum();
+    }
+
+    @Override
+    public long getCacheHits() {
+        return cacheHits.sum();
+    }
+
+    @Override
+    public double getFilesPerSecond() {
+        return getFiles() / elapsedSeconds();
+    }
+
+    @Override
+    public double getBytesPerSecond() {
+        return getBytes() / elapsedSeconds();
+    }
+
+    @Override
+    public int getHashQueueDepth() {
+        return hashQueue.getAsInt();
+    }
+
+    @Override
+    public int getWriteQueueDepth() {
+        return writeQueue.getAsInt();
+    }
+
+    @Override
+    public Map<String, Long> getErrors() {
+        Map<String, Long> res = new LinkedHashMap<>();
+        errors.forEach((error, count) -> res.put(error.name(), count.sum()));
+        return res;
+    }
+
+    @Override
+    public long getLatencyP50Nanos() {
+        return percentile(0.5);
+    }
+
+    @Override
+    public long getLatencyP99Nanos() {
+        return percentile(0.99);
+    }
+
+    private void report() {
+        long now = System.nanoTime();
+        long files = getFiles();
+        long bytes = getBytes();
+        double seconds = Math.max(now - lastTime, 1) / 1e9;
+        Map<String, Long> errors = new LinkedHashMap<>();
+        getErrors().forEach((error, count) -> {
+            if (count > 0) {
+                errors.put(error, count);
+            }
+        });
+        System.err.printf("Walk: %d files (%.1f/s), %d cached, %.1f MiB/s, hash queue %d, write queue %d, "
+                        + "latency p50 %.3f ms, p99 %.3f ms, errors %s%n",
+                files, (files - lastFiles) / seconds, getCacheHits(), (bytes - lastBytes) / seconds / (1 << 20),
+                getHashQueueDepth(), getWriteQueueDepth(),
+                getLatencyP50Nanos() / 1e6, getLatencyP99Nanos() / 1e6, errors);
+        lastFiles = files;
+        lastBytes = bytes;
+        lastTime = now;
+    }
+
+    /**
+     * Starts periodic reports to {@code System.err} and registers the metrics as {@value #OBJECT_NAME}.
+     *
+     * @param periodSeconds - time between reports.
+     */
+    public synchronized void start(long periodSeconds) {
+        reporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "walk-metrics");
+            thread.setDaemon(true);
+            return thread;
+        });
+        reporter.scheduleAtFixedRate(this::report, periodSeconds, periodSeconds, TimeUnit.SECONDS);
+
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            objectName = new ObjectName(OBJECT_NAME);
+            if (server.isRegistered(objectName)) {
+                objectName = new ObjectName(OBJECT_NAME + ",id=" + System.identityHashCode(this));
+            }
+            server.registerMBean(this, objectName);
+        } catch (JMException e) {
+            objectName = null;
+            System.err.println("Cannot register walk metrics: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Stops reports, printing the final one, and unregisters the metrics.
+     * Waits for a report in progress, so the final report is printed after it.
+     */
+    @Override
+    public synchronized void close() {
+        if (reporter != null) {
+            // Periodic reports are cancelled on shutdown
+            reporter.shutdown();
+            try {
+                reporter.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            reporter = null;
+            report();
+        }
+        if (objectName != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+            } catch (JMException ignored) {
+            }
+            objectName = null;
+        }
+    }
+}
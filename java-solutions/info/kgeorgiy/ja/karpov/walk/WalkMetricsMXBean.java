@@ -0,0 +1,79 @@
+package info.kgeorgiy.ja.karpov.walk;
+
+import java.util.Map;
+
+/**
+ * Management interface of a running walk, registered as {@value WalkMetrics#OBJECT_NAME}.
+ */
+public interface WalkMetricsMXBean {
+    /**
+     * Returns number of files hashed or taken from the cache.
+     *
+     * @return number of files.
+     */
+    long getFiles();
+
+    /**
+     * Returns number of bytes in successfully hashed files.
+     *
+     * @return number of bytes.
+     */
+    long getBytes();
+
+    /**
+     * Returns number of files whose hashes were taken from the cache.
+     * Such files count towards {@link #getFiles()}, but not towards bytes and latencies.
+     *
+     * @return number of cache hits.
+     */
+    long getCacheHits();
+
+    /**
+     * Returns average number of files per second since the walk started.
+     *
+     * @return files per second.
+     */
+    double getFilesPerSecond();
+
+    /**
+     * Returns average number of bytes per second since the walk started.
+     *
+     * @return bytes per second.
+     */
+    double getBytesPerSecond();
+
+    /**
+     * Returns number of files waiting for a hasher thread.
+     *
+     * @return hash queue depth, zero when hashing on the walking thread.
+     */
+    int getHashQueueDepth();
+
+    /**
+     * Returns number of lines waiting for the writer thread.
+     *
+     * @return write queue depth, zero when hashing on the walking thread.
+     */
+    int getWriteQueueDepth();
+
+    /**
+     * Returns numbers of errors by category.
+     *
+     * @return map from {@link WalkMetrics.ErrorKind} names to error counts.
+     */
+    Map<String, Long> getErrors();
+
+    /**
+     * Returns median time of hashing one file, not counting cache hits.
+     *
+     * @return latency in nanoseconds, with about 12% precision.
+     */
+    long getLatencyP50Nanos();
+
+    /**
+     * Returns 99th percentile of time of hashing one file, not counting cache hits.
+     *
+     * @return latency in nanoseconds, with about 12% precision.
+     */
+    long getLatencyP99Nanos();
+}
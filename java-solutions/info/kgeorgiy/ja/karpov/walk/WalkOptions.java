@@ -0,0 +1,114 @@
+package info.kgeorgiy.ja.karpov.walk;
+
+/**
+ * Command line of {@link Walk} and {@link RecursiveWalk}:
+ * {@code [-threads N] [-cache file] [-algorithm name] [-tree chunk] [-listers N] [-stats seconds] input output}.
+ * <ul>
+ *     <li>{@code -threads} - number of hashing threads;</li>
+ *     <li>{@code -cache} - file of the persistent hash cache;</li>
+ *     <li>{@code -algorithm} - hash algorithm, see {@link HashAlgorithms#forName(String)};</li>
+ *     <li>{@code -tree} - chunk size of the {@link TreeHash} mode;</li>
+ *     <li>{@code -listers} - number of threads listing directories concurrently;</li>
+ *     <li>{@code -stats} - period of progress reports to {@code System.err},
+ *     also enables the {@link WalkMetricsMXBean}.</li>
+ * </ul>
+ */
+class WalkOptions {
+    String input;
+    String output;
+    int threads = 1;
+    String cache;
+    HashAlgorithm algorithm = HashAlgorithms.SHA_256;
+    long treeChunk;
+    int listers;
+    int statsPeriod;
+
+    private static int parsePositive(String name, String value) {
+        try {
+            int res = Integer.parseInt(value);
+            if (res > 0) {
+                return res;
+            }
+        } catch (NumberFormatException ignored) {
+        }
+        System.out.println("Option " + name + " expects a positive integer, got " + value);
+        return -1;
+    }
+
+    static WalkOptions parse(String[] args) {
+        if (args == null) {
+            System.out.println("Null arguments provided");
+            return null;
+        }
+
+        WalkOptions options = new WalkOptions();
+        int i = 0;
+        while (args.length - i > 2 && args[i] != null && args[i].startsWith("-")) {
+            String name = args[i++];
+            String value = args[i++];
+            if (value == null) {
+                System.out.println("Null value provided for option " + name);
+                return null;
+            }
+            switch (name) {
+                case "-threads" -> {
+                    if ((options.threads = parsePositive(name, value)) < 0) {
+                        return null;
+                    }
+                }
+                case "-listers" -> {
+                    if ((options.listers = parsePositive(name, value)) < 0) {
+                        return null;
+                    }
+                }
+                case "-stats" -> {
+                    if ((options.statsPeriod = parsePositive(name, value)) < 0) {
+                        return null;
+                    }
+                }
+                case "-cache" -> options.cache = value;
+                case "-algorithm" -> {
+                    if ((options.algorithm = HashAlgorithms.forName(value)) == null) {
+                        System.out.println("Unknown hash algorithm " + value);
+                        return null;
+                    }
+                }
+                case "-tree" -> {
+                    try {
+                        options.treeChunk = Long.parseLong(value);
+                    } catch (NumberFormatException e) {
+                        options.treeChunk = -1;
+                    }
+                    if (options.treeChunk <= 0 || options.treeChunk > TreeHash.MAX_CHUNK_SIZE) {
+                        System.out.println("Option " + name + " expects a chunk size from 1 to "
+                                + TreeHash.MAX_CHUNK_SIZE + ", got " + value);
+                        return null;
+                    }
+                }
+                default -> {
+                    System.out.println("Unknown option " + name);
+                    return null;
+                }
+            }
+        }
+
+        if (args.length - i != 2) {
+            System.out.println("Wrong number of arguments provided");
+            return null;
+        }
+        if (args[i] == null) {
+            System.out.println("Input file provided is null");
+            return null;
+        }
+        if (args[i + 1] == null) {
+            System.out.println("Output file provided is null");
+            return null;
+        }
+        if (options.treeChunk > 0) {
+            options.algorithm = new TreeHash(options.algorithm, options.treeChunk);
+        }
+        options.input = args[i];
+        options.output = args[i + 1];
+        return options;
+    }
+}
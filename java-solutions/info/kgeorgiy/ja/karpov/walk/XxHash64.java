@@ -0,0 +1,132 @@
+package info.kgeorgiy.ja.karpov.walk;
+
+/**
+ * Streaming XXH64 with seed 0. Digest is the canonical big-endian form of the 64-bit hash.
+ * Not cryptographic: intended for fast change detection and deduplication scans.
+ */
+public class XxHash64 implements HashAlgorithm {
+    private static final long PRIME1 = 0x9E3779B185EBCA87L;
+    private static final long PRIME2 = 0xC2B2AE3D27D4EB4FL;
+    private static final long PRIME3 = 0x165667B19E3779F9L;
+    private static final long PRIME4 = 0x85EBCA77C2B2AE63L;
+    private static final long PRIME5 = 0x27D4EB2F165667C5L;
+    private static final int STRIPE = 32;
+
+    @Override
+    public String name() {
+        return "XXH64";
+    }
+
+    @Override
+    public int digestLength() {
+        return Long.BYTES;
+    }
+
+    private static long round(long acc, long input) {
+        return Long.rotateLeft(acc + input * PRIME2, 31) * PRIME1;
+    }
+
+    private static long merge(long acc, long value) {
+        return (acc ^ round(0, value)) * PRIME1 + PRIME4;
+    }
+
+    private static long getLong(byte[] bytes, int i) {
+        return (long) AbstractHasher.LONG_LE.get(bytes, i);
+    }
+
+    private static long getInt(byte[] bytes, int i) {
+        return Integer.toUnsignedLong((int) AbstractHasher.INT_LE.get(bytes, i));
+    }
+
+    @Override
+    public Hasher newHasher() {
+        return new AbstractHasher() {
+            private final byte[] pending = new byte[STRIPE];
+            private int pendingLength;
+            private long total;
+            private long v1;
+            private long v2;
+            private long v3;
+            private long v4;
+
+            {
+                reset();
+            }
+
+            private void stripe(byte[] bytes, int i) {
+                v1 = round(v1, getLong(bytes, i));
+                v2 = round(v2, getLong(bytes, i + 8));
+                v3 = round(v3, getLong(bytes, i + 16));
+                v4 = round(v4, getLong(bytes, i + 24));
+            }
+
+            @Override
+            public void update(byte[] bytes, int offset, int length) {
+                total += length;
+                int end = offset + length;
+                if (pendingLength > 0) {
+                    int take = Math.min(STRIPE - pendingLength, length);
+                    System.arraycopy(bytes, offset, pending, pendingLength, take);
+                    pendingLength += take;
+                    offset += take;
+                    if (pendingLength < STRIPE) {
+                        return;
+                    }
+                    stripe(pending, 0);
+                    pendingLength = 0;
+                }
+                for (; offset + STRIPE <= end; offset += STRIPE) {
+                    stripe(bytes, offset);
+                }
+                pendingLength = end - offset;
+                System.arraycopy(bytes, offset, pending, 0, pendingLength);
+            }
+
+            @Override
+            public void digest(byte[] out, int offset) {
+                long h;
+                if (total >= STRIPE) {
+                    h = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7)
+                            + Long.rotateLeft(v3, 12) + Long.rotateLeft(v4, 18);
+                    h = merge(h, v1);
+                    h = merge(h, v2);
+                    h = merge(h, v3);
+                    h = merge(h, v4);
+                } else {
+                    h = PRIME5;
+                }
+                h += total;
+
+                int i = 0;
+                for (; i + 8 <= pendingLength; i += 8) {
+                    h = Long.rotateLeft(h ^ round(0, getLong(pending, i)), 27) * PRIME1 + PRIME4;
+                }
+                if (i + 4 <= pendingLength) {
+                    h = Long.rotateLeft(h ^ getInt(pending, i) * PRIME1, 23) * PRIME2 + PRIME3;
+                    i += 4;
+                }
+                for (; i < pendingLength; i++) {
+                    h = Long.rotateLeft(h ^ (pending[i] & 0xffL) * PRIME5, 11) * PRIME1;
+                }
+
+                h ^= h >>> 33;
+                h *= PRIME2;
+                h ^= h >>> 29;
+                h *= PRIME3;
+                h ^= h >>> 32;
+                reset();
+                putLong(out, offset, h);
+            }
+
+            @Override
+            public void reset() {
+                v1 = PRIME1 + PRIME2;
+                v2 = PRIME2;
+                v3 = 0;
+                v4 = -PRIME1;
+                total = 0;
+                pendingLength = 0;
+            }
+        };
+    }
+}
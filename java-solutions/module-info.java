@@ -12,6 +12,8 @@ module info.kgeorgiy.ja.karpov {
 	requires info.kgeorgiy.java.advanced.crawler;
 	requires info.kgeorgiy.java.advanced.hello;
 
+	uses info.kgeorgiy.ja.karpov.walk.HashAlgorithm;
+
 	exports info.kgeorgiy.ja.karpov.walk;
     opens info.kgeorgiy.ja.karpov.walk;
     exports info.kgeorgiy.ja.karpov.arrayset;